@@ -1,16 +1,24 @@
 package com.dev.unitests;
 
-import org.modelmapper.ModelMapper;
+import com.dev.unitests.api.mapper.BookMapper;
+import com.dev.unitests.api.mapper.LoanMapper;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.context.annotation.Bean;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 @SpringBootApplication
+@EnableScheduling
 public class LibrarywithTddApplication {
 
 	@Bean
-	public ModelMapper modelMapper(){
-		return new ModelMapper();
+	public BookMapper bookMapper(){
+		return new BookMapper();
+	}
+
+	@Bean
+	public LoanMapper loanMapper(BookMapper bookMapper){
+		return new LoanMapper(bookMapper);
 	}
 
 	public static void main(String[] args) {
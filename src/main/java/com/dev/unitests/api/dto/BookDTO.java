@@ -25,4 +25,7 @@ public class BookDTO {
     @NotEmpty
     private String isbn;
 
+    //somente leitura; como filtro de GET /api/books, true traz apenas os livros sem emprestimo aberto
+    private Boolean available;
+
 }
@@ -0,0 +1,20 @@
+package com.dev.unitests.api.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class BookImportResultDTO {
+
+    private long received;
+    private long imported;
+    private long duplicated;
+    private long invalid;
+    private long elapsedMillis;
+    private double booksPerSecond;
+}
@@ -0,0 +1,17 @@
+package com.dev.unitests.api.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class CustomerLoanSummaryDTO {
+
+    private String customer;
+    private long totalLoans;
+    private long openLoans;
+}
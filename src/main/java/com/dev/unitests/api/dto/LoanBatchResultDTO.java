@@ -0,0 +1,18 @@
+package com.dev.unitests.api.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class LoanBatchResultDTO {
+
+    private String isbn;
+    private String customer;
+    private Long id;
+    private String error;
+}
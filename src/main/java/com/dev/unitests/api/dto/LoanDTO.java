@@ -5,6 +5,8 @@ import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 
+import java.time.LocalDate;
+
 @Data
 @Builder
 @NoArgsConstructor
@@ -15,4 +17,7 @@ public class LoanDTO {
     private String isbn;
     private String customer;
     private BookDTO book;
+    //somente leitura; loanDate e id sao o cursor do historico do cliente
+    private LocalDate loanDate;
+    private Boolean returned;
 }
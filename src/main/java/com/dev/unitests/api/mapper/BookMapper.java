@@ -0,0 +1,32 @@
+package com.dev.unitests.api.mapper;
+
+import com.dev.unitests.api.dto.BookDTO;
+import com.dev.unitests.model.entity.Book;
+
+public class BookMapper {
+
+    public Book toEntity(BookDTO dto) {
+        if (dto == null) {
+            return null;
+        }
+        return Book.builder()
+                .id(dto.getId())
+                .title(dto.getTitle())
+                .author(dto.getAuthor())
+                .isbn(dto.getIsbn())
+                .build();
+    }
+
+    public BookDTO toDTO(Book book) {
+        if (book == null) {
+            return null;
+        }
+        return BookDTO.builder()
+                .id(book.getId())
+                .title(book.getTitle())
+                .author(book.getAuthor())
+                .isbn(book.getIsbn())
+                .available(book.isAvailable())
+                .build();
+    }
+}
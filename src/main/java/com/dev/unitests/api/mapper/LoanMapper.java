@@ -0,0 +1,26 @@
+package com.dev.unitests.api.mapper;
+
+import com.dev.unitests.api.dto.LoanDTO;
+import com.dev.unitests.model.entity.Loan;
+
+public class LoanMapper {
+
+    private final BookMapper bookMapper;
+
+    public LoanMapper(BookMapper bookMapper) {
+        this.bookMapper = bookMapper;
+    }
+
+    public LoanDTO toDTO(Loan loan) {
+        if (loan == null) {
+            return null;
+        }
+        return LoanDTO.builder()
+                .id(loan.getId())
+                .customer(loan.getCustomer())
+                .book(bookMapper.toDTO(loan.getBook()))
+                .loanDate(loan.getLoanDate())
+                .returned(loan.getReturned())
+                .build();
+    }
+}
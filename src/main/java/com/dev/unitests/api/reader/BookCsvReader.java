@@ -0,0 +1,112 @@
+package com.dev.unitests.api.reader;
+
+import com.dev.unitests.api.dto.BookDTO;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ * Le livros em csv linha a linha. A primeira linha e o cabecalho com as colunas title, author e isbn,
+ * em qualquer ordem.
+ */
+public class BookCsvReader implements Iterator<BookDTO> {
+
+    private final BufferedReader reader;
+    private final int titleColumn;
+    private final int authorColumn;
+    private final int isbnColumn;
+    private String nextLine;
+
+    public BookCsvReader(InputStream input) {
+        this.reader = new BufferedReader(new InputStreamReader(input, StandardCharsets.UTF_8));
+        List<String> header = parseLine(readLine());
+        this.titleColumn = column(header, "title");
+        this.authorColumn = column(header, "author");
+        this.isbnColumn = column(header, "isbn");
+        this.nextLine = readLine();
+    }
+
+    @Override
+    public boolean hasNext() {
+        return nextLine != null;
+    }
+
+    @Override
+    public BookDTO next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        List<String> values = parseLine(nextLine);
+        nextLine = readLine();
+        return BookDTO.builder()
+                .title(value(values, titleColumn))
+                .author(value(values, authorColumn))
+                .isbn(value(values, isbnColumn))
+                .build();
+    }
+
+    private String readLine() {
+        try {
+            String line = reader.readLine();
+            while (line != null && line.trim().isEmpty()) {
+                line = reader.readLine();
+            }
+            return line;
+        } catch (IOException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Invalid csv of books");
+        }
+    }
+
+    private static int column(List<String> header, String name) {
+        for (int i = 0; i < header.size(); i++) {
+            if (header.get(i).trim().equalsIgnoreCase(name)) {
+                return i;
+            }
+        }
+        throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Csv header must have column " + name);
+    }
+
+    private static String value(List<String> values, int column) {
+        return column < values.size() ? values.get(column) : null;
+    }
+
+    static List<String> parseLine(String line) {
+        if (line == null) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Empty csv");
+        }
+        List<String> values = new ArrayList<>();
+        StringBuilder value = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c == '"' && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    value.append('"');
+                    i++;
+                } else if (c == '"') {
+                    quoted = false;
+                } else {
+                    value.append(c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                values.add(value.toString());
+                value.setLength(0);
+            } else {
+                value.append(c);
+            }
+        }
+        values.add(value.toString());
+        return values;
+    }
+}
@@ -0,0 +1,66 @@
+package com.dev.unitests.api.reader;
+
+import com.dev.unitests.api.dto.BookDTO;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Le um array json de livros um elemento por vez, sem carregar o corpo inteiro em memoria.
+ */
+public class BookJsonReader implements Iterator<BookDTO> {
+
+    private final ObjectMapper objectMapper;
+    private final JsonParser parser;
+    private JsonToken current;
+
+    public BookJsonReader(ObjectMapper objectMapper, InputStream input) {
+        this.objectMapper = objectMapper;
+        try {
+            this.parser = objectMapper.getFactory().createParser(input);
+            if (parser.nextToken() != JsonToken.START_ARRAY) {
+                throw invalidBody();
+            }
+            this.current = parser.nextToken();
+        } catch (IOException e) {
+            throw invalidBody();
+        }
+    }
+
+    //fim so no fecha do array; outro elemento ou o corpo truncado e erro, nao uma importacao menor
+    @Override
+    public boolean hasNext() {
+        if (current == JsonToken.START_OBJECT) {
+            return true;
+        }
+        if (current == JsonToken.END_ARRAY) {
+            return false;
+        }
+        throw invalidBody();
+    }
+
+    @Override
+    public BookDTO next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        try {
+            BookDTO dto = objectMapper.readValue(parser, BookDTO.class);
+            current = parser.nextToken();
+            return dto;
+        } catch (IOException e) {
+            throw invalidBody();
+        }
+    }
+
+    private static ResponseStatusException invalidBody() {
+        return new ResponseStatusException(HttpStatus.BAD_REQUEST, "Invalid json array of books");
+    }
+}
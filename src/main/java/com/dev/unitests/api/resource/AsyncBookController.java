@@ -0,0 +1,64 @@
+package com.dev.unitests.api.resource;
+
+import com.dev.unitests.api.dto.BookDTO;
+import lombok.RequiredArgsConstructor;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.web.bind.annotation.*;
+
+import javax.validation.Valid;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Mesmos endpoints de BookController executados no jpaExecutor, liberando a thread do Tomcat
+ * durante o acesso ao banco.
+ */
+@RestController
+@RequestMapping("/api/async/books")
+@RequiredArgsConstructor
+public class AsyncBookController {
+
+    private final BookController books;
+    private final ThreadPoolTaskExecutor jpaExecutor;
+
+    @PostMapping
+    @ResponseStatus(HttpStatus.CREATED)
+    public CompletableFuture<BookDTO> create(@RequestBody @Valid BookDTO dto) {
+        return CompletableFuture.supplyAsync(() -> books.create(dto), jpaExecutor);
+    }
+
+    @GetMapping("/{id}")
+    public CompletableFuture<ResponseEntity<BookDTO>> getBookById(@PathVariable Long id,
+                                                                  @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        return CompletableFuture.supplyAsync(() -> books.getBookById(id, ifNoneMatch), jpaExecutor);
+    }
+
+    @DeleteMapping("/{id}")
+    @ResponseStatus(HttpStatus.NO_CONTENT)
+    public CompletableFuture<Void> deleteBookById(@PathVariable Long id) {
+        return CompletableFuture.runAsync(() -> books.deleteBookById(id), jpaExecutor);
+    }
+
+    @PutMapping("/{id}")
+    public CompletableFuture<BookDTO> update(@PathVariable Long id, @RequestBody @Valid BookDTO dto,
+                                             @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+        return CompletableFuture.supplyAsync(() -> books.update(id, dto, ifMatch), jpaExecutor);
+    }
+
+    @PatchMapping("/{id}")
+    @ResponseStatus(HttpStatus.NO_CONTENT)
+    public CompletableFuture<Void> patch(@PathVariable Long id, @RequestBody BookDTO dto,
+                                         @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+        return CompletableFuture.runAsync(() -> books.patch(id, dto, ifMatch), jpaExecutor);
+    }
+
+    @GetMapping
+    public CompletableFuture<ResponseEntity<Page<BookDTO>>> findBookByPage(BookDTO dto, Pageable pageRequest,
+                                                                           @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        return CompletableFuture.supplyAsync(() -> books.findBookByPage(dto, pageRequest, ifNoneMatch), jpaExecutor);
+    }
+}
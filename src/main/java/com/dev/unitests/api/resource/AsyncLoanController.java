@@ -0,0 +1,45 @@
+package com.dev.unitests.api.resource;
+
+import com.dev.unitests.api.dto.LoanDTO;
+import com.dev.unitests.api.dto.LoanFilterDTO;
+import com.dev.unitests.api.dto.ReturnedLoanDTO;
+import lombok.RequiredArgsConstructor;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Mesmos endpoints de LoanController executados no jpaExecutor.
+ */
+@RestController
+@RequestMapping("/api/async/loans")
+@RequiredArgsConstructor
+public class AsyncLoanController {
+
+    private final LoanController loans;
+    private final ThreadPoolTaskExecutor jpaExecutor;
+
+    @PostMapping
+    @ResponseStatus(HttpStatus.CREATED)
+    public CompletableFuture<Long> create(@RequestBody LoanDTO dto) {
+        return CompletableFuture.supplyAsync(() -> loans.create(dto), jpaExecutor);
+    }
+
+    @PatchMapping("{id}")
+    @ResponseStatus(HttpStatus.OK)
+    public CompletableFuture<Void> returnBookFromLoan(@PathVariable Long id, @RequestBody ReturnedLoanDTO dto) {
+        return CompletableFuture.runAsync(() -> loans.returnBookFromLoan(id, dto), jpaExecutor);
+    }
+
+    @GetMapping
+    public CompletableFuture<ResponseEntity<Page<LoanDTO>>> find(LoanFilterDTO dto, Pageable pageRequest,
+                                                                 @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        return CompletableFuture.supplyAsync(() -> loans.find(dto, pageRequest, ifNoneMatch), jpaExecutor);
+    }
+}
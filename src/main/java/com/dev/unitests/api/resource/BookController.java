@@ -1,18 +1,31 @@
 package com.dev.unitests.api.resource;
 
 import com.dev.unitests.api.dto.BookDTO;
+import com.dev.unitests.api.dto.BookImportResultDTO;
+import com.dev.unitests.api.mapper.BookMapper;
+import com.dev.unitests.api.reader.BookCsvReader;
+import com.dev.unitests.api.reader.BookJsonReader;
 import com.dev.unitests.model.entity.Book;
+import com.dev.unitests.service.BookImportService;
 import com.dev.unitests.service.BookService;
+import com.dev.unitests.service.search.SearchOperator;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.RequiredArgsConstructor;
-import org.modelmapper.ModelMapper;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.server.ResponseStatusException;
 
 import javax.validation.Valid;
+import java.io.InputStream;
 import java.util.List;
 import java.util.stream.Collectors;
 
@@ -22,21 +35,59 @@ import java.util.stream.Collectors;
 public class BookController {
 
     private final BookService service;
-    private final ModelMapper modelMapper;
+    private final BookMapper bookMapper;
+    private final BookImportService importService;
+    private final ObjectMapper objectMapper;
 
     @PostMapping
     @ResponseStatus(HttpStatus.CREATED)
     public BookDTO create(@RequestBody @Valid BookDTO dto) {
-        Book entity = modelMapper.map(dto, Book.class);
+        Book entity = bookMapper.toEntity(dto);
         entity = service.save(entity);
-        return modelMapper.map(entity, BookDTO.class);
+        return bookMapper.toDTO(entity);
     }
 
+    @PostMapping(value = "/import", consumes = MediaType.APPLICATION_JSON_VALUE)
+    public BookImportResultDTO importJson(InputStream body) {
+        return importService.importBooks(new BookJsonReader(objectMapper, body));
+    }
+
+    @PostMapping(value = "/import", consumes = "text/csv")
+    public BookImportResultDTO importCsv(InputStream body) {
+        return importService.importBooks(new BookCsvReader(body));
+    }
+
+    @GetMapping("/search")
+    public ResponseEntity<List<BookDTO>> search(@RequestParam("q") String query,
+                                                @RequestParam(defaultValue = "AND") SearchOperator operator,
+                                                @RequestParam(defaultValue = "20") int limit,
+                                                @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        List<Book> result = service.search(query, operator, limit);
+        String etag = ETags.ofBooks(result);
+        if (ETags.matches(ifNoneMatch, etag)) {
+            return notModified(etag);
+        }
+        List<BookDTO> list = result
+                .stream()
+                .map(bookMapper::toDTO)
+                .collect(Collectors.toList());
+        return ResponseEntity.ok().eTag(etag).body(list);
+    }
+
+    //com If-None-Match a versao vem de uma projecao e o livro so e carregado se tiver mudado
     @GetMapping("/{id}")
-    public BookDTO getBookById(@PathVariable Long id) {
-        return service.getById(id)
-                .map(book -> modelMapper.map(book, BookDTO.class))
-                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND));
+    public ResponseEntity<BookDTO> getBookById(@PathVariable Long id,
+                                               @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        if (ifNoneMatch != null) {
+            String etag = service.getVersion(id)
+                    .map(ETags::of)
+                    .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND));
+            if (ETags.matches(ifNoneMatch, etag)) {
+                return notModified(etag);
+            }
+        }
+        Book book = service.getById(id).orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND));
+        return ResponseEntity.ok().eTag(ETags.of(book.getVersion())).body(bookMapper.toDTO(book));
     }
 
     @DeleteMapping("/{id}")
@@ -46,25 +97,67 @@ public class BookController {
         service.delete(book);
     }
 
+    //sem If-Match (ou com *) atualiza sem verificar a versao, como o patch
     @PutMapping("/{id}")
-    public BookDTO update(@PathVariable Long id, @RequestBody @Valid BookDTO dto) {
+    public BookDTO update(@PathVariable Long id, @RequestBody @Valid BookDTO dto,
+                          @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+        if (!service.updatePartial(id, ifMatch == null ? null : ETags.version(ifMatch), dto.getTitle(), dto.getAuthor())) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND);
+        }
+        //a resposta traz o livro como ficou gravado, inclusive isbn e versao
         Book book = service.getById(id).orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND));
-        book.setAuthor(dto.getAuthor());
-        book.setTitle(dto.getTitle());
-        service.update(book);
-        return modelMapper.map(book, BookDTO.class);
+        return bookMapper.toDTO(book);
+    }
+
+    //altera apenas title e/ou author presentes no corpo, com um unico update e sem ler o livro
+    @PatchMapping("/{id}")
+    @ResponseStatus(HttpStatus.NO_CONTENT)
+    public void patch(@PathVariable Long id, @RequestBody BookDTO dto,
+                      @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+        if (!service.updatePartial(id, ifMatch == null ? null : ETags.version(ifMatch), dto.getTitle(), dto.getAuthor())) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND);
+        }
     }
 
     @GetMapping
-    public Page<BookDTO> findBookByPage(BookDTO dto, Pageable pageRequest) {
-        Book bookFilter = modelMapper.map(dto, Book.class);
-        Page<Book> result = service.find(bookFilter, pageRequest);
+    public ResponseEntity<Page<BookDTO>> findBookByPage(BookDTO dto, Pageable pageRequest,
+                                                        @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        Book bookFilter = bookMapper.toEntity(dto);
+        Page<Book> result = Boolean.TRUE.equals(dto.getAvailable())
+                ? service.findAvailable(bookFilter, pageRequest)
+                : service.find(bookFilter, pageRequest);
+        String etag = ETags.ofBooks(result.getContent(), result.getTotalElements());
+        if (ETags.matches(ifNoneMatch, etag)) {
+            return notModified(etag);
+        }
+        List<BookDTO> list = result.getContent()
+                .stream()
+                .map(bookMapper::toDTO)
+                .collect(Collectors.toList());
+
+        return ResponseEntity.ok().eTag(etag).body(new PageImpl<>(list, pageRequest, result.getTotalElements()));
+    }
+
+    @GetMapping(params = "afterId")
+    public ResponseEntity<Slice<BookDTO>> findBookAfterId(BookDTO dto, @RequestParam Long afterId, Pageable pageRequest,
+                                                          @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        Book bookFilter = bookMapper.toEntity(dto);
+        Slice<Book> result = service.findAfter(bookFilter, afterId, pageRequest.getPageSize());
+        String etag = ETags.ofBooks(result.getContent(), result.hasNext() ? 1 : 0);
+        if (ETags.matches(ifNoneMatch, etag)) {
+            return notModified(etag);
+        }
         List<BookDTO> list = result.getContent()
                 .stream()
-                .map(entity -> modelMapper.map(entity, BookDTO.class))
+                .map(bookMapper::toDTO)
                 .collect(Collectors.toList());
 
-        return new PageImpl<>(list, pageRequest, result.getTotalElements());
+        return ResponseEntity.ok().eTag(etag)
+                .body(new SliceImpl<>(list, PageRequest.of(0, pageRequest.getPageSize()), result.hasNext()));
+    }
+
+    private static <T> ResponseEntity<T> notModified(String etag) {
+        return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).build();
     }
 
 }
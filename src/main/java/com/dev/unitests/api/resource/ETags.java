@@ -0,0 +1,94 @@
+package com.dev.unitests.api.resource;
+
+import com.dev.unitests.model.entity.Book;
+import com.dev.unitests.model.entity.Loan;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.Collection;
+
+/**
+ * ETags fortes a partir das versoes das entidades: de um livro e a propria versao, de uma
+ * listagem e um hash dos pares (id, versao) do conteudo e dos metadados da pagina.
+ */
+final class ETags {
+
+    private static final long FNV_OFFSET = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    private ETags() {
+    }
+
+    static String of(long version) {
+        return "\"" + version + "\"";
+    }
+
+    static String ofBooks(Collection<Book> books, long... metadata) {
+        long hash = hash(FNV_OFFSET, metadata);
+        for (Book book : books) {
+            hash = hash(hash, book.getId(), book.getVersion());
+        }
+        return "\"" + Long.toHexString(hash) + "\"";
+    }
+
+    //o LoanDTO traz o livro, entao a versao dele tambem entra
+    static String ofLoans(Collection<Loan> loans, long... metadata) {
+        long hash = hash(FNV_OFFSET, metadata);
+        for (Loan loan : loans) {
+            hash = hash(hash, loan.getId(), loan.getVersion());
+            if (loan.getBook() != null) {
+                hash = hash(hash, loan.getBook().getId(), loan.getBook().getVersion());
+            }
+        }
+        return "\"" + Long.toHexString(hash) + "\"";
+    }
+
+    /**
+     * Comparacao fraca do If-None-Match (lista separada por virgulas ou *), como pede a RFC 7232.
+     */
+    static boolean matches(String ifNoneMatch, String etag) {
+        if (ifNoneMatch == null) {
+            return false;
+        }
+        for (String candidate : ifNoneMatch.split(",")) {
+            String value = candidate.trim();
+            if (value.equals("*")) {
+                return true;
+            }
+            if (value.startsWith("W/")) {
+                value = value.substring(2);
+            }
+            if (value.equals(etag)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    //If-Match com a versao do livro: "3", W/"3" ou 3; * (qualquer representacao atual) vira null, sem verificacao
+    static Long version(String ifMatch) {
+        String value = ifMatch.trim();
+        if ("*".equals(value)) {
+            return null;
+        }
+        if (value.startsWith("W/")) {
+            value = value.substring(2);
+        }
+        value = value.replace("\"", "");
+        try {
+            return Long.valueOf(value);
+        } catch (NumberFormatException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Invalid If-Match version");
+        }
+    }
+
+    private static long hash(long hash, long... values) {
+        for (long value : values) {
+            for (int shift = 0; shift < 64; shift += 8) {
+                hash ^= (value >>> shift) & 0xff;
+                hash *= FNV_PRIME;
+            }
+        }
+        return hash;
+    }
+}
@@ -1,22 +1,36 @@
 package com.dev.unitests.api.resource;
 
-import com.dev.unitests.api.dto.BookDTO;
+import com.dev.unitests.api.dto.CustomerLoanSummaryDTO;
+import com.dev.unitests.api.dto.LoanBatchResultDTO;
 import com.dev.unitests.api.dto.LoanDTO;
 import com.dev.unitests.api.dto.LoanFilterDTO;
+import com.dev.unitests.api.dto.LoanReturnDTO;
+import com.dev.unitests.api.dto.LoanReturnResultDTO;
 import com.dev.unitests.api.dto.ReturnedLoanDTO;
+import com.dev.unitests.api.mapper.LoanMapper;
+import com.dev.unitests.api.writer.LoanCsvWriter;
+import com.dev.unitests.api.writer.LoanNdjsonWriter;
 import com.dev.unitests.model.entity.Book;
 import com.dev.unitests.model.entity.Loan;
 import com.dev.unitests.service.BookService;
 import com.dev.unitests.service.LoanService;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.RequiredArgsConstructor;
-import org.modelmapper.ModelMapper;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.server.ResponseStatusException;
 
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
 import java.time.LocalDate;
 import java.util.List;
 import java.util.stream.Collectors;
@@ -28,7 +42,8 @@ public class LoanController {
 
     private final LoanService service;
     private final BookService bookService;
-    private final ModelMapper modelMapper;
+    private final LoanMapper loanMapper;
+    private final ObjectMapper objectMapper;
 
     @PostMapping
     @ResponseStatus(HttpStatus.CREATED)
@@ -47,6 +62,17 @@ public class LoanController {
         return entity.getId();
     }
 
+    @PostMapping("/batch")
+    public List<LoanBatchResultDTO> createBatch(@RequestBody List<LoanDTO> dtos) {
+        return service.saveBatch(dtos);
+    }
+
+    //devolucao em lote por ids de emprestimo e/ou isbns, com um update por bloco de ids
+    @PatchMapping("/return")
+    public LoanReturnResultDTO returnBooks(@RequestBody LoanReturnDTO dto) {
+        return service.returnBatch(dto.getIds(), dto.getIsbns());
+    }
+
     @PatchMapping("{id}")
     @ResponseStatus(HttpStatus.OK)
     public void returnBookFromLoan(@PathVariable Long id,
@@ -56,19 +82,96 @@ public class LoanController {
         service.update(loan);
     }
 
+    //escreve direto na resposta enquanto percorre o cursor, sem paginar nem contar
+    @GetMapping(value = "/export", produces = "application/x-ndjson")
+    public void exportNdjson(HttpServletResponse response) throws IOException {
+        response.setContentType("application/x-ndjson");
+        LoanNdjsonWriter writer = new LoanNdjsonWriter(objectMapper, response.getOutputStream());
+        service.exportAll(writer);
+        writer.flush();
+    }
+
+    @GetMapping(value = "/export", produces = "text/csv")
+    public void exportCsv(HttpServletResponse response) throws IOException {
+        response.setContentType("text/csv;charset=UTF-8");
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"loans.csv\"");
+        LoanCsvWriter writer = new LoanCsvWriter(response.getOutputStream());
+        service.exportAll(writer);
+        writer.flush();
+    }
+
+    //emprestimos abertos ha mais de 'days' dias (padrao library.overdue.loan-days), dos mais antigos aos mais novos
+    @GetMapping("/overdue")
+    public Page<LoanDTO> findOverdue(@RequestParam(defaultValue = "${library.overdue.loan-days:30}") int days,
+                                     Pageable pageRequest) {
+        Page<Loan> result = service.findOverdue(LocalDate.now().minusDays(days), pageRequest);
+        List<LoanDTO> loans = result
+                .getContent()
+                .stream()
+                .map(loanMapper::toDTO)
+                .collect(Collectors.toList());
+        return new PageImpl<>(loans, pageRequest, result.getTotalElements());
+    }
+
+    //historico do cliente em ordem (loanDate desc, id desc); a proxima fatia continua do loanDate e id do ultimo item
+    @GetMapping("/customers/{customer}")
+    public Slice<LoanDTO> findCustomerHistory(@PathVariable String customer,
+                                              @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate beforeDate,
+                                              @RequestParam(required = false) Long beforeId,
+                                              Pageable pageRequest) {
+        //o cursor e o par (beforeDate, beforeId); so o id recomecaria sempre da primeira fatia
+        if (beforeId != null && beforeDate == null) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "beforeId requires beforeDate");
+        }
+        Slice<Loan> result = service.findCustomerHistory(customer, beforeDate, beforeId, pageRequest.getPageSize());
+        List<LoanDTO> loans = result
+                .getContent()
+                .stream()
+                .map(loanMapper::toDTO)
+                .collect(Collectors.toList());
+        return new SliceImpl<>(loans, PageRequest.of(0, pageRequest.getPageSize()), result.hasNext());
+    }
+
+    @GetMapping("/customers/{customer}/summary")
+    public CustomerLoanSummaryDTO getCustomerSummary(@PathVariable String customer) {
+        return service.getCustomerSummary(customer);
+    }
+
+    //sem mudanca nas versoes de emprestimos e livros da pagina responde 304, sem montar nem serializar os DTOs
     @GetMapping
-    public Page<LoanDTO> find(LoanFilterDTO dto, Pageable pageRequest) {
+    public ResponseEntity<Page<LoanDTO>> find(LoanFilterDTO dto, Pageable pageRequest,
+                                              @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
         Page<Loan> result = service.find(dto, pageRequest);
+        String etag = ETags.ofLoans(result.getContent(), result.getTotalElements());
+        if (ETags.matches(ifNoneMatch, etag)) {
+            return notModified(etag);
+        }
         List<LoanDTO> loans = result
                 .getContent()
                 .stream()
-                .map(entity -> {
-                    Book book = entity.getBook();
-                    BookDTO bookDTO = modelMapper.map(book, BookDTO.class);
-                    LoanDTO loanDTO = modelMapper.map(entity, LoanDTO.class);
-                    loanDTO.setBook(bookDTO);
-                    return loanDTO;
-                }).collect(Collectors.toList());
-        return new PageImpl<>(loans, pageRequest, result.getTotalElements());
+                .map(loanMapper::toDTO)
+                .collect(Collectors.toList());
+        return ResponseEntity.ok().eTag(etag).body(new PageImpl<>(loans, pageRequest, result.getTotalElements()));
+    }
+
+    @GetMapping(params = "afterId")
+    public ResponseEntity<Slice<LoanDTO>> findAfterId(LoanFilterDTO dto, @RequestParam Long afterId, Pageable pageRequest,
+                                                      @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        Slice<Loan> result = service.findAfter(dto, afterId, pageRequest.getPageSize());
+        String etag = ETags.ofLoans(result.getContent(), result.hasNext() ? 1 : 0);
+        if (ETags.matches(ifNoneMatch, etag)) {
+            return notModified(etag);
+        }
+        List<LoanDTO> loans = result
+                .getContent()
+                .stream()
+                .map(loanMapper::toDTO)
+                .collect(Collectors.toList());
+        return ResponseEntity.ok().eTag(etag)
+                .body(new SliceImpl<>(loans, PageRequest.of(0, pageRequest.getPageSize()), result.hasNext()));
+    }
+
+    private static <T> ResponseEntity<T> notModified(String etag) {
+        return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).build();
     }
 }
@@ -0,0 +1,84 @@
+package com.dev.unitests.api.writer;
+
+import com.dev.unitests.model.entity.Book;
+import com.dev.unitests.model.entity.Loan;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.function.Consumer;
+
+/**
+ * Escreve emprestimos em csv linha a linha, com cabecalho. Valores com virgula, aspas ou quebra
+ * de linha vao entre aspas, no mesmo formato lido por BookCsvReader.
+ */
+public class LoanCsvWriter implements Consumer<Loan> {
+
+    static final String HEADER = "id,customer,loan_date,returned,book_id,isbn,title,author";
+
+    private final Writer writer;
+
+    public LoanCsvWriter(OutputStream output) {
+        this.writer = new BufferedWriter(new OutputStreamWriter(output, StandardCharsets.UTF_8));
+        write(HEADER);
+        write("\n");
+    }
+
+    @Override
+    public void accept(Loan loan) {
+        Book book = loan.getBook();
+        StringBuilder line = new StringBuilder(128);
+        line.append(loan.getId()).append(',');
+        appendValue(line, loan.getCustomer()).append(',');
+        line.append(loan.getLoanDate() == null ? "" : loan.getLoanDate().toString()).append(',');
+        line.append(Boolean.TRUE.equals(loan.getReturned())).append(',');
+        line.append(book.getId()).append(',');
+        appendValue(line, book.getIsbn()).append(',');
+        appendValue(line, book.getTitle()).append(',');
+        appendValue(line, book.getAuthor()).append('\n');
+        write(line.toString());
+    }
+
+    public void flush() {
+        try {
+            writer.flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void write(String value) {
+        try {
+            writer.write(value);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    static StringBuilder appendValue(StringBuilder line, String value) {
+        if (value == null) {
+            return line;
+        }
+        boolean quote = false;
+        for (int i = 0; i < value.length() && !quote; i++) {
+            char c = value.charAt(i);
+            quote = c == ',' || c == '"' || c == '\n' || c == '\r';
+        }
+        if (!quote) {
+            return line.append(value);
+        }
+        line.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"') {
+                line.append('"');
+            }
+            line.append(c);
+        }
+        return line.append('"');
+    }
+}
@@ -0,0 +1,59 @@
+package com.dev.unitests.api.writer;
+
+import com.dev.unitests.model.entity.Book;
+import com.dev.unitests.model.entity.Loan;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.function.Consumer;
+
+/**
+ * Escreve um emprestimo por linha em json (NDJSON) direto no stream, sem montar dto nem lista.
+ */
+public class LoanNdjsonWriter implements Consumer<Loan> {
+
+    private final JsonGenerator generator;
+
+    public LoanNdjsonWriter(ObjectMapper objectMapper, OutputStream output) {
+        try {
+            this.generator = objectMapper.getFactory().createGenerator(output);
+            //o separador padrao entre valores raiz e um espaco, que iniciaria cada linha depois da primeira
+            this.generator.setRootValueSeparator(null);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public void accept(Loan loan) {
+        Book book = loan.getBook();
+        try {
+            generator.writeStartObject();
+            generator.writeNumberField("id", loan.getId());
+            generator.writeStringField("customer", loan.getCustomer());
+            generator.writeStringField("loanDate", loan.getLoanDate() == null ? null : loan.getLoanDate().toString());
+            generator.writeBooleanField("returned", Boolean.TRUE.equals(loan.getReturned()));
+            generator.writeObjectFieldStart("book");
+            generator.writeNumberField("id", book.getId());
+            generator.writeStringField("isbn", book.getIsbn());
+            generator.writeStringField("title", book.getTitle());
+            generator.writeStringField("author", book.getAuthor());
+            generator.writeEndObject();
+            generator.writeEndObject();
+            generator.writeRaw('\n');
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    public void flush() {
+        try {
+            generator.flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -0,0 +1,38 @@
+package com.dev.unitests.config;
+
+import com.dev.unitests.metrics.QueryCountInspector;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.jvm.ExecutorServiceMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+/**
+ * Pool dedicado ao trabalho JPA dos endpoints /api/async. Tamanho e fila sao limitados: com o pool
+ * cheio o submit lanca TaskRejectedException, que o ApplicationControllerAdvice devolve como 503.
+ * O tamanho padrao acompanha o pool do Hikari (10), ja que cada tarefa segura uma conexao.
+ */
+@Configuration
+public class JpaExecutorConfiguration {
+
+    @Bean
+    public ThreadPoolTaskExecutor jpaExecutor(@Value("${library.jpa-executor.pool-size:10}") int poolSize,
+                                              @Value("${library.jpa-executor.queue-capacity:200}") int queueCapacity) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(poolSize);
+        executor.setMaxPoolSize(poolSize);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setThreadNamePrefix("jpa-");
+        //as consultas da tarefa contam para a requisicao que a submeteu
+        executor.setTaskDecorator(QueryCountInspector.taskDecorator());
+        return executor;
+    }
+
+    @Bean
+    public MeterBinder jpaExecutorMetrics(ThreadPoolTaskExecutor jpaExecutor) {
+        return registry -> new ExecutorServiceMetrics(jpaExecutor.getThreadPoolExecutor(), "jpaExecutor", Tags.empty())
+                .bindTo(registry);
+    }
+}
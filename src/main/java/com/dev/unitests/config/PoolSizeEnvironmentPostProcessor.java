@@ -0,0 +1,42 @@
+package com.dev.unitests.config;
+
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.env.EnvironmentPostProcessor;
+import org.springframework.core.env.ConfigurableEnvironment;
+import org.springframework.core.env.MapPropertySource;
+
+import java.util.Collections;
+
+/**
+ * Com library.datasource.pool-size-per-cpu definido (perfil perf), dimensiona o pool do Hikari pelos nucleos:
+ * nucleos * pool-size-per-cpu + pool-size-spindles, a formula do "About Pool Sizing" do HikariCP.
+ * O resultado vai para spring.datasource.hikari.maximum-pool-size; um valor explicito continua valendo.
+ */
+public class PoolSizeEnvironmentPostProcessor implements EnvironmentPostProcessor {
+
+    static final String PER_CPU = "library.datasource.pool-size-per-cpu";
+    static final String SPINDLES = "library.datasource.pool-size-spindles";
+    static final String MAXIMUM_POOL_SIZE = "spring.datasource.hikari.maximum-pool-size";
+
+    private final int cpus;
+
+    public PoolSizeEnvironmentPostProcessor() {
+        this(Runtime.getRuntime().availableProcessors());
+    }
+
+    PoolSizeEnvironmentPostProcessor(int cpus) {
+        this.cpus = cpus;
+    }
+
+    @Override
+    public void postProcessEnvironment(ConfigurableEnvironment environment, SpringApplication application) {
+        Integer perCpu = environment.getProperty(PER_CPU, Integer.class);
+        if (perCpu == null || environment.containsProperty(MAXIMUM_POOL_SIZE)) {
+            return;
+        }
+        int spindles = environment.getProperty(SPINDLES, Integer.class, 1);
+        int poolSize = Math.max(1, cpus * perCpu + spindles);
+        environment.getPropertySources().addLast(new MapPropertySource("libraryPoolSize",
+                Collections.singletonMap(MAXIMUM_POOL_SIZE, poolSize)));
+    }
+}
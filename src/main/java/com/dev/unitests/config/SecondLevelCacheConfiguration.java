@@ -0,0 +1,106 @@
+package com.dev.unitests.config;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.ehcache.config.CacheConfiguration;
+import org.ehcache.config.builders.CacheConfigurationBuilder;
+import org.ehcache.config.builders.ConfigurationBuilder;
+import org.ehcache.config.builders.ExpiryPolicyBuilder;
+import org.ehcache.config.builders.ResourcePoolsBuilder;
+import org.ehcache.jsr107.EhcacheCachingProvider;
+import org.hibernate.SessionFactory;
+import org.hibernate.cache.jcache.ConfigSettings;
+import org.hibernate.cache.spi.RegionFactory;
+import org.hibernate.cfg.AvailableSettings;
+import org.hibernate.stat.CacheRegionStatistics;
+import org.hibernate.stat.Statistics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import javax.cache.CacheManager;
+import javax.cache.Caching;
+import javax.persistence.EntityManagerFactory;
+import java.net.URI;
+import java.time.Duration;
+import java.util.UUID;
+import java.util.function.Function;
+
+/**
+ * Cache de segundo nivel do Hibernate para Book e para a consulta por isbn, no Ehcache via JCache.
+ * Cada SessionFactory recebe um CacheManager proprio (fechado pelo Hibernate junto com ela), com as regioes
+ * e limites de library.second-level-cache.*; regiao que nao estiver declarada aqui falha na subida.
+ * Acertos e faltas de cada regiao saem em cache.gets/cache.puts/cache.size (tag cache), lidos das
+ * estatisticas do Hibernate (hibernate.generate_statistics). library.second-level-cache.enabled=false desliga.
+ */
+@Configuration
+@ConditionalOnProperty(name = "library.second-level-cache.enabled", havingValue = "true", matchIfMissing = true)
+public class SecondLevelCacheConfiguration {
+
+    public static final String BOOK_REGION = "book";
+    public static final String BOOK_BY_ISBN_REGION = "book-by-isbn";
+
+    //uma entrada por tabela; o Hibernate exige que os timestamps nunca expirem antes dos resultados
+    private static final long TIMESTAMPS_MAX_ENTRIES = 100;
+
+    @Bean
+    public HibernatePropertiesCustomizer secondLevelCacheCustomizer(
+            @Value("${library.second-level-cache.book.max-entries:10000}") long bookMaxEntries,
+            @Value("${library.second-level-cache.book.ttl:PT10M}") Duration bookTtl,
+            @Value("${library.second-level-cache.query.max-entries:1000}") long queryMaxEntries,
+            @Value("${library.second-level-cache.query.ttl:PT5M}") Duration queryTtl) {
+        return properties -> {
+            org.ehcache.config.Configuration configuration = ConfigurationBuilder.newConfigurationBuilder()
+                    .withCache(BOOK_REGION, region(bookMaxEntries, bookTtl))
+                    .withCache(BOOK_BY_ISBN_REGION, region(queryMaxEntries, queryTtl))
+                    .withCache(RegionFactory.DEFAULT_QUERY_RESULTS_REGION_UNQUALIFIED_NAME, region(queryMaxEntries, queryTtl))
+                    .withCache(RegionFactory.DEFAULT_UPDATE_TIMESTAMPS_REGION_UNQUALIFIED_NAME, region(TIMESTAMPS_MAX_ENTRIES, null))
+                    .build();
+            EhcacheCachingProvider provider = (EhcacheCachingProvider) Caching.getCachingProvider(EhcacheCachingProvider.class.getName());
+            CacheManager cacheManager = provider.getCacheManager(URI.create("urn:library:second-level-cache:" + UUID.randomUUID()), configuration);
+
+            properties.put(AvailableSettings.USE_SECOND_LEVEL_CACHE, "true");
+            properties.put(AvailableSettings.USE_QUERY_CACHE, "true");
+            properties.put(AvailableSettings.CACHE_REGION_FACTORY, "jcache");
+            properties.put(ConfigSettings.CACHE_MANAGER, cacheManager);
+            properties.put(ConfigSettings.MISSING_CACHE_STRATEGY, "fail");
+        };
+    }
+
+    //o HibernateMetrics do Micrometer so publica totais; aqui sai por regiao
+    @Bean
+    public MeterBinder secondLevelCacheMetrics(EntityManagerFactory entityManagerFactory) {
+        return registry -> {
+            Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+            bindRegion(registry, statistics, BOOK_REGION, st -> st.getDomainDataRegionStatistics(BOOK_REGION));
+            bindRegion(registry, statistics, BOOK_BY_ISBN_REGION, st -> st.getQueryRegionStatistics(BOOK_BY_ISBN_REGION));
+        };
+    }
+
+    //os medidores guardam so referencia fraca ao objeto medido, por isso recebem o Statistics da SessionFactory
+    private static void bindRegion(MeterRegistry registry, Statistics statistics, String region,
+                                   Function<Statistics, CacheRegionStatistics> regionStatistics) {
+        FunctionCounter.builder("cache.gets", statistics, st -> regionStatistics.apply(st).getHitCount())
+                .tags("cache", region, "cacheManager", "hibernate", "result", "hit")
+                .register(registry);
+        FunctionCounter.builder("cache.gets", statistics, st -> regionStatistics.apply(st).getMissCount())
+                .tags("cache", region, "cacheManager", "hibernate", "result", "miss")
+                .register(registry);
+        FunctionCounter.builder("cache.puts", statistics, st -> regionStatistics.apply(st).getPutCount())
+                .tags("cache", region, "cacheManager", "hibernate")
+                .register(registry);
+        Gauge.builder("cache.size", statistics, st -> regionStatistics.apply(st).getElementCountInMemory())
+                .tags("cache", region, "cacheManager", "hibernate")
+                .register(registry);
+    }
+
+    private static CacheConfiguration<Object, Object> region(long maxEntries, Duration ttl) {
+        return CacheConfigurationBuilder.newCacheConfigurationBuilder(Object.class, Object.class, ResourcePoolsBuilder.heap(maxEntries))
+                .withExpiry(ttl == null ? ExpiryPolicyBuilder.noExpiration() : ExpiryPolicyBuilder.timeToLiveExpiration(ttl))
+                .build();
+    }
+}
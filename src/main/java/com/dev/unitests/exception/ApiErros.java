@@ -23,6 +23,10 @@ public class ApiErros {
         this.errors = Collections.singletonList(ex.getReason());
     }
 
+    public ApiErros(String error) {
+        this.errors = Collections.singletonList(error);
+    }
+
     public List<String> getErrors() {
         return errors;
     }
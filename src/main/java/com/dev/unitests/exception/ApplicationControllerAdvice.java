@@ -1,5 +1,8 @@
 package com.dev.unitests.exception;
 
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.validation.BindingResult;
@@ -9,9 +12,17 @@ import org.springframework.web.bind.annotation.ResponseStatus;
 import org.springframework.web.bind.annotation.RestControllerAdvice;
 import org.springframework.web.server.ResponseStatusException;
 
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
 @RestControllerAdvice
 public class ApplicationControllerAdvice {
 
+    //as mensagens de negocio sao constantes; o limite so protege contra mensagens montadas em tempo de execucao
+    private static final int MAX_CACHED_BUSINESS_ERRORS = 256;
+
+    private final ConcurrentMap<String, ApiErros> businessErrors = new ConcurrentHashMap<>();
+
     @ExceptionHandler(MethodArgumentNotValidException.class)
     @ResponseStatus(HttpStatus.BAD_REQUEST)
     public ApiErros handleValidationExceptions(MethodArgumentNotValidException ex) {
@@ -22,11 +33,51 @@ public class ApplicationControllerAdvice {
     @ExceptionHandler(BusinessException.class)
     @ResponseStatus(HttpStatus.BAD_REQUEST)
     public ApiErros handleBusinessException(BusinessException ex) {
-        return new ApiErros(ex);
+        String message = ex.getMessage();
+        if (message == null) {
+            return new ApiErros(ex);
+        }
+        ApiErros body = businessErrors.get(message);
+        if (body == null) {
+            body = new ApiErros(ex);
+            if (businessErrors.size() < MAX_CACHED_BUSINESS_ERRORS) {
+                businessErrors.putIfAbsent(message, body);
+            }
+        }
+        return body;
     }
 
     @ExceptionHandler(ResponseStatusException.class)
     public ResponseEntity handleResponseStatusException(ResponseStatusException ex) {
         return new ResponseEntity(new ApiErros(ex), ex.getStatus());
     }
+
+    @ExceptionHandler(OptimisticLockingFailureException.class)
+    @ResponseStatus(HttpStatus.CONFLICT)
+    public ApiErros handleOptimisticLockingFailureException(OptimisticLockingFailureException ex) {
+        return new ApiErros(ex.getMessage());
+    }
+
+    //If-Match explicito com versao desatualizada; o 409 acima fica para os conflitos de escrita concorrente
+    @ExceptionHandler(PreconditionFailedException.class)
+    @ResponseStatus(HttpStatus.PRECONDITION_FAILED)
+    public ApiErros handlePreconditionFailedException(PreconditionFailedException ex) {
+        return new ApiErros(ex.getMessage());
+    }
+
+    //lancada pelo RateLimitFilter e resolvida aqui pelo HandlerExceptionResolver do MVC
+    @ExceptionHandler(TooManyRequestsException.class)
+    public ResponseEntity<ApiErros> handleTooManyRequestsException(TooManyRequestsException ex) {
+        return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(ex.getRetryAfterSeconds()))
+                .body(new ApiErros(ex.getMessage()));
+    }
+
+    //jpaExecutor sem threads nem fila livres: o cliente deve tentar de novo em vez de aguardar
+    @ExceptionHandler(TaskRejectedException.class)
+    public ResponseEntity<ApiErros> handleTaskRejectedException(TaskRejectedException ex) {
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, "1")
+                .body(new ApiErros("Server busy, try again later"));
+    }
 }
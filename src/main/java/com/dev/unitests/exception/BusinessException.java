@@ -1,7 +1,16 @@
 package com.dev.unitests.exception;
 
 public class BusinessException extends RuntimeException {
+
+    //rejeicoes frequentes e de mensagem fixa: instancias unicas, sem stack trace
+    public static final BusinessException ISBN_ALREADY_REGISTERED = new BusinessException("Isbn já cadastrado", false);
+    public static final BusinessException BOOK_ALREADY_LOANED = new BusinessException("Book already loaned", false);
+
     public BusinessException(String s) {
         super(s);
     }
+
+    private BusinessException(String s, boolean writableStackTrace) {
+        super(s, null, false, writableStackTrace);
+    }
 }
@@ -0,0 +1,11 @@
+package com.dev.unitests.exception;
+
+/**
+ * A versao informada pelo cliente no If-Match nao e mais a atual do recurso (412).
+ */
+public class PreconditionFailedException extends RuntimeException {
+
+    public PreconditionFailedException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,19 @@
+package com.dev.unitests.exception;
+
+/**
+ * Requisicao recusada pelo RateLimitFilter. Sem stack trace: e lancada a cada rejeicao
+ * e justamente quando o servidor esta sob carga.
+ */
+public class TooManyRequestsException extends RuntimeException {
+
+    private final long retryAfterSeconds;
+
+    public TooManyRequestsException(String message, long retryAfterSeconds) {
+        super(message, null, false, false);
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+
+    public long getRetryAfterSeconds() {
+        return retryAfterSeconds;
+    }
+}
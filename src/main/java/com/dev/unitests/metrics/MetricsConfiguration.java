@@ -0,0 +1,14 @@
+package com.dev.unitests.metrics;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+public class MetricsConfiguration {
+
+    @Bean
+    public QueryCountFilter queryCountFilter(MeterRegistry registry) {
+        return new QueryCountFilter(registry);
+    }
+}
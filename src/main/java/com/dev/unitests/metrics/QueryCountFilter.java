@@ -0,0 +1,60 @@
+package com.dev.unitests.metrics;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.HandlerMapping;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Registra em library.request.queries quantos comandos SQL cada requisicao executou, por metodo e uri.
+ * Requisicoes assincronas sao registradas uma vez, no dispatch final, somando o que rodou no jpaExecutor.
+ * Declarado em MetricsConfiguration para ficar fora dos testes @WebMvcTest, que nao tem MeterRegistry.
+ */
+public class QueryCountFilter extends OncePerRequestFilter {
+
+    static final String QUERIES = "library.request.queries";
+
+    private static final String COUNTER_ATTRIBUTE = QueryCountFilter.class.getName() + ".COUNTER";
+
+    private final MeterRegistry registry;
+
+    public QueryCountFilter(MeterRegistry registry) {
+        this.registry = registry;
+    }
+
+    //os endpoints assincronos terminam num segundo dispatch, depois do trabalho no jpaExecutor
+    @Override
+    protected boolean shouldNotFilterAsyncDispatch() {
+        return false;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        AtomicInteger counter = (AtomicInteger) request.getAttribute(COUNTER_ATTRIBUTE);
+        if (counter == null) {
+            counter = new AtomicInteger();
+            request.setAttribute(COUNTER_ATTRIBUTE, counter);
+        }
+        QueryCountInspector.bind(counter);
+        try {
+            chain.doFilter(request, response);
+        } finally {
+            QueryCountInspector.bind(null);
+            if (!isAsyncStarted(request)) {
+                Object uri = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+                DistributionSummary.builder(QUERIES)
+                        .tags("method", request.getMethod(), "uri", uri == null ? "UNKNOWN" : uri.toString())
+                        .register(registry)
+                        .record(counter.get());
+            }
+        }
+    }
+}
@@ -0,0 +1,54 @@
+package com.dev.unitests.metrics;
+
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import org.springframework.core.task.TaskDecorator;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Conta os comandos SQL preparados pelo Hibernate no contador da requisicao ligado a thread atual.
+ * Registrado via hibernate.session_factory.statement_inspector; o QueryCountFilter liga o contador e o le
+ * ao fim da requisicao, e o taskDecorator o leva para as threads do jpaExecutor. Fora de uma requisicao
+ * nada e contado.
+ */
+public class QueryCountInspector implements StatementInspector {
+
+    private static final ThreadLocal<AtomicInteger> COUNTER = new ThreadLocal<>();
+
+    @Override
+    public String inspect(String sql) {
+        AtomicInteger counter = COUNTER.get();
+        if (counter != null) {
+            counter.incrementAndGet();
+        }
+        return sql;
+    }
+
+    static AtomicInteger current() {
+        return COUNTER.get();
+    }
+
+    static void bind(AtomicInteger counter) {
+        if (counter == null) {
+            COUNTER.remove();
+        } else {
+            COUNTER.set(counter);
+        }
+    }
+
+    //a tarefa conta no contador de quem a submeteu e devolve a thread do pool sem contador
+    public static TaskDecorator taskDecorator() {
+        return task -> {
+            AtomicInteger counter = COUNTER.get();
+            return () -> {
+                AtomicInteger previous = COUNTER.get();
+                bind(counter);
+                try {
+                    task.run();
+                } finally {
+                    bind(previous);
+                }
+            };
+        };
+    }
+}
@@ -0,0 +1,136 @@
+package com.dev.unitests.metrics;
+
+import com.dev.unitests.exception.BusinessException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.aspectj.lang.reflect.MethodSignature;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.stereotype.Component;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Latencia dos servicos (library.service) e dos repositorios (library.repository) por metodo,
+ * e contagem das regras de negocio violadas (library.business.rejections) por motivo.
+ * Timers e contadores ficam em cache para que nem o caminho feliz nem as rejeicoes passem pelo registry.
+ */
+@Aspect
+@Component
+public class ServiceMetricsAspect {
+
+    static final String SERVICE_TIMER = "library.service";
+    static final String REPOSITORY_TIMER = "library.repository";
+    static final String REJECTIONS = "library.business.rejections";
+
+    private final MeterRegistry registry;
+    //por classe alvo e metodo: os repositorios herdam os mesmos Method (CrudRepository.save, findById...)
+    private final ConcurrentMap<Class<?>, ConcurrentMap<Method, Timer>> timers = new ConcurrentHashMap<>();
+    private final ConcurrentMap<Class<?>, ConcurrentMap<Method, ConcurrentMap<Class<?>, Timer>>> errorTimers = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, Counter> rejections = new ConcurrentHashMap<>();
+
+    //lazy: o proprio registry passa pelo auto proxy que instancia este aspecto
+    public ServiceMetricsAspect(@Lazy MeterRegistry registry) {
+        this.registry = registry;
+    }
+
+    @Around("execution(public * com.dev.unitests.service.impl.*Impl.*(..))")
+    public Object timeService(ProceedingJoinPoint joinPoint) throws Throwable {
+        return time(SERVICE_TIMER, joinPoint);
+    }
+
+    @Around("target(com.dev.unitests.repository.BookRepository) || target(com.dev.unitests.repository.LoanRepository)")
+    public Object timeRepository(ProceedingJoinPoint joinPoint) throws Throwable {
+        return time(REPOSITORY_TIMER, joinPoint);
+    }
+
+    private Object time(String name, ProceedingJoinPoint joinPoint) throws Throwable {
+        long start = System.nanoTime();
+        try {
+            Object result = joinPoint.proceed();
+            timer(name, joinPoint).record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            return result;
+        } catch (Throwable ex) {
+            long elapsed = System.nanoTime() - start;
+            errorTimer(name, joinPoint, ex).record(elapsed, TimeUnit.NANOSECONDS);
+            if (ex instanceof BusinessException) {
+                rejection(ex.getMessage()).increment();
+            }
+            throw ex;
+        }
+    }
+
+    private Timer timer(String name, ProceedingJoinPoint joinPoint) {
+        Method method = ((MethodSignature) joinPoint.getSignature()).getMethod();
+        Class<?> target = targetClass(joinPoint);
+        ConcurrentMap<Method, Timer> byMethod = timers.get(target);
+        if (byMethod == null) {
+            byMethod = timers.computeIfAbsent(target, type -> new ConcurrentHashMap<>());
+        }
+        Timer timer = byMethod.get(method);
+        if (timer == null) {
+            timer = byMethod.computeIfAbsent(method, m -> Timer.builder(name)
+                    .tags("class", className(joinPoint), "method", m.getName(), "exception", "none")
+                    .register(registry));
+        }
+        return timer;
+    }
+
+    //rejeicoes de negocio sao frequentes, entao o timer com a tag da excecao tambem fica em cache, com a mesma chave de timers
+    private Timer errorTimer(String name, ProceedingJoinPoint joinPoint, Throwable ex) {
+        Method method = ((MethodSignature) joinPoint.getSignature()).getMethod();
+        Class<?> target = targetClass(joinPoint);
+        ConcurrentMap<Method, ConcurrentMap<Class<?>, Timer>> byMethod = errorTimers.get(target);
+        if (byMethod == null) {
+            byMethod = errorTimers.computeIfAbsent(target, type -> new ConcurrentHashMap<>());
+        }
+        ConcurrentMap<Class<?>, Timer> byException = byMethod.get(method);
+        if (byException == null) {
+            byException = byMethod.computeIfAbsent(method, m -> new ConcurrentHashMap<>());
+        }
+        Timer timer = byException.get(ex.getClass());
+        if (timer == null) {
+            timer = byException.computeIfAbsent(ex.getClass(), type -> Timer.builder(name)
+                    .tags("class", className(joinPoint), "method", methodName(joinPoint),
+                            "exception", type.getSimpleName())
+                    .register(registry));
+        }
+        return timer;
+    }
+
+    private Counter rejection(String reason) {
+        String key = reason == null ? "unknown" : reason;
+        Counter counter = rejections.get(key);
+        if (counter == null) {
+            counter = rejections.computeIfAbsent(key, r -> Counter.builder(REJECTIONS)
+                    .tag("reason", r)
+                    .register(registry));
+        }
+        return counter;
+    }
+
+    //repositorios sao proxies, entao o nome vem da interface declarada
+    private static String className(ProceedingJoinPoint joinPoint) {
+        Class<?> type = targetClass(joinPoint);
+        for (Class<?> candidate : type.getInterfaces()) {
+            if (candidate.getName().startsWith("com.dev.unitests.repository")) {
+                return candidate.getSimpleName();
+            }
+        }
+        return type.getSimpleName();
+    }
+
+    private static Class<?> targetClass(ProceedingJoinPoint joinPoint) {
+        return joinPoint.getTarget() != null ? joinPoint.getTarget().getClass() : joinPoint.getSignature().getDeclaringType();
+    }
+
+    private static String methodName(ProceedingJoinPoint joinPoint) {
+        return joinPoint.getSignature().getName();
+    }
+}
@@ -1,23 +1,39 @@
 package com.dev.unitests.model.entity;
 
+import com.dev.unitests.config.SecondLevelCacheConfiguration;
+import lombok.AccessLevel;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
+import lombok.EqualsAndHashCode;
 import lombok.NoArgsConstructor;
+import lombok.Setter;
+import lombok.ToString;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 
 import javax.persistence.*;
+import java.util.Locale;
 
 @Data
 @Builder
 @AllArgsConstructor
 @NoArgsConstructor
 @Entity
-@Table
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = SecondLevelCacheConfiguration.BOOK_REGION)
+@Table(indexes = {
+        @Index(name = "ux_book_isbn", columnList = "isbn", unique = true),
+        @Index(name = "idx_book_title_search", columnList = "title_search"),
+        @Index(name = "idx_book_author_search", columnList = "author_search"),
+        @Index(name = "idx_book_isbn_search", columnList = "isbn_search")
+})
 public class Book {
 
     @Id
     @Column
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "book_seq")
+    @SequenceGenerator(name = "book_seq", sequenceName = "book_seq", allocationSize = 50)
     private Long id;
 
     @Column
@@ -28,4 +44,52 @@ public class Book {
 
     @Column
     private String isbn;
+
+    //copias em minusculas usadas na busca por prefixo, mantidas por normalizeSearchColumns
+    @Column(name = "title_search")
+    @Setter(AccessLevel.NONE)
+    @EqualsAndHashCode.Exclude
+    @ToString.Exclude
+    private String titleSearch;
+
+    @Column(name = "author_search")
+    @Setter(AccessLevel.NONE)
+    @EqualsAndHashCode.Exclude
+    @ToString.Exclude
+    private String authorSearch;
+
+    @Column(name = "isbn_search")
+    @Setter(AccessLevel.NONE)
+    @EqualsAndHashCode.Exclude
+    @ToString.Exclude
+    private String isbnSearch;
+
+    //emprestimo aberto do livro (null = disponivel); so as queries condicionais de BookRepository alteram
+    @Column(name = "current_loan_id", insertable = false, updatable = false)
+    @Setter(AccessLevel.NONE)
+    @EqualsAndHashCode.Exclude
+    @ToString.Exclude
+    private Long currentLoanId;
+
+    //primitivo para o Spring Data continuar decidindo entre persist e merge pelo id
+    @Version
+    @Column(nullable = false)
+    @EqualsAndHashCode.Exclude
+    private long version;
+
+    @PrePersist
+    @PreUpdate
+    void normalizeSearchColumns() {
+        titleSearch = normalize(title);
+        authorSearch = normalize(author);
+        isbnSearch = normalize(isbn);
+    }
+
+    public boolean isAvailable() {
+        return currentLoanId == null;
+    }
+
+    public static String normalize(String value) {
+        return value == null ? null : value.toLowerCase(Locale.ROOT);
+    }
 }
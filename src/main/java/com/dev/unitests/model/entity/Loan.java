@@ -1,9 +1,13 @@
 package com.dev.unitests.model.entity;
 
+import lombok.AccessLevel;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
+import lombok.EqualsAndHashCode;
 import lombok.NoArgsConstructor;
+import lombok.Setter;
+import lombok.ToString;
 
 import javax.persistence.*;
 import java.time.LocalDate;
@@ -13,9 +17,17 @@ import java.time.LocalDate;
 @NoArgsConstructor
 @AllArgsConstructor
 @Entity
+@Table(indexes = {
+        @Index(name = "idx_loan_book_returned", columnList = "id_book, returned"),
+        @Index(name = "idx_loan_customer_history", columnList = "customer, loanDate, id, returned"),
+        @Index(name = "ux_loan_open_book", columnList = "open_book_id", unique = true),
+        @Index(name = "idx_loan_returned_date", columnList = "returned, loanDate, id")
+})
 public class Loan {
 
-    @Id @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "loan_seq")
+    @SequenceGenerator(name = "loan_seq", sequenceName = "loan_seq", allocationSize = 50)
     private Long id;
 
     @Column
@@ -28,6 +40,29 @@ public class Loan {
     @Column
     private LocalDate loanDate;
 
-    @Column
-    private Boolean returned;
+    @Column(nullable = false)
+    @Builder.Default
+    private Boolean returned = false;
+
+    //id do livro enquanto o emprestimo esta aberto; o indice unico impede dois emprestimos abertos do mesmo livro
+    @Column(name = "open_book_id")
+    @Setter(AccessLevel.NONE)
+    @EqualsAndHashCode.Exclude
+    @ToString.Exclude
+    private Long openBookId;
+
+    //primitivo para o Spring Data continuar decidindo entre persist e merge pelo id
+    @Version
+    @Column(nullable = false)
+    @EqualsAndHashCode.Exclude
+    private long version;
+
+    @PrePersist
+    @PreUpdate
+    void normalizeReturned() {
+        if (returned == null) {
+            returned = false;
+        }
+        openBookId = returned || book == null ? null : book.getId();
+    }
 }
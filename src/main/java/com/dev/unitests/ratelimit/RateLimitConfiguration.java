@@ -0,0 +1,37 @@
+package com.dev.unitests.ratelimit;
+
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.servlet.HandlerExceptionResolver;
+
+/**
+ * Registra o RateLimitFilter apenas na frente de /api/books e /api/loans (e das variantes /api/async);
+ * actuator e demais caminhos nao passam por ele. library.rate-limit.enabled=false desliga.
+ */
+@Configuration
+@ConditionalOnProperty(name = "library.rate-limit.enabled", havingValue = "true", matchIfMissing = true)
+public class RateLimitConfiguration {
+
+    @Bean
+    public FilterRegistrationBean<RateLimitFilter> rateLimitFilter(
+            @Value("${library.rate-limit.read.per-second:50}") double readPerSecond,
+            @Value("${library.rate-limit.read.burst:100}") int readBurst,
+            @Value("${library.rate-limit.write.per-second:10}") double writePerSecond,
+            @Value("${library.rate-limit.write.burst:20}") int writeBurst,
+            @Value("${library.rate-limit.stripes:4096}") int stripes,
+            @Value("${library.rate-limit.read-max-in-flight:48}") int readMaxInFlight,
+            @Value("${library.rate-limit.max-in-flight:64}") int maxInFlight,
+            @Qualifier("handlerExceptionResolver") HandlerExceptionResolver exceptionResolver) {
+        RateLimitFilter filter = new RateLimitFilter(
+                new TokenBuckets(readPerSecond, readBurst, stripes),
+                new TokenBuckets(writePerSecond, writeBurst, stripes),
+                readMaxInFlight, maxInFlight, exceptionResolver);
+        FilterRegistrationBean<RateLimitFilter> registration = new FilterRegistrationBean<>(filter);
+        registration.addUrlPatterns("/api/books/*", "/api/loans/*", "/api/async/*");
+        return registration;
+    }
+}
@@ -0,0 +1,115 @@
+package com.dev.unitests.ratelimit;
+
+import com.dev.unitests.exception.TooManyRequestsException;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.HandlerExceptionResolver;
+
+import javax.servlet.AsyncEvent;
+import javax.servlet.AsyncListener;
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.LongSupplier;
+
+/**
+ * Limite por cliente (endereco remoto) com orcamentos separados para leitura (GET/HEAD) e escrita,
+ * e descarte de carga pelo numero de requisicoes em andamento: leituras, que podem varrer o acervo,
+ * sao recusadas a partir de readMaxInFlight; escritas so a partir de maxInFlight, para que
+ * emprestimos continuem passando quando as buscas saturam o banco.
+ * <p>
+ * As recusas vao para o HandlerExceptionResolver do MVC, e assim saem pelo ApplicationControllerAdvice
+ * como 429 no formato ApiErros. Declarado em RateLimitConfiguration.
+ */
+public class RateLimitFilter extends OncePerRequestFilter {
+
+    static final String RATE_LIMITED = "Too many requests, try again later";
+    static final String OVERLOADED = "Server busy, try again later";
+
+    private static final TooManyRequestsException OVERLOADED_EXCEPTION = new TooManyRequestsException(OVERLOADED, 1);
+
+    private final TokenBuckets reads;
+    private final TokenBuckets writes;
+    private final int readMaxInFlight;
+    private final int maxInFlight;
+    private final HandlerExceptionResolver exceptionResolver;
+    private final LongSupplier nanoClock;
+
+    private final AtomicInteger inFlight = new AtomicInteger();
+
+    public RateLimitFilter(TokenBuckets reads, TokenBuckets writes, int readMaxInFlight, int maxInFlight,
+                           HandlerExceptionResolver exceptionResolver) {
+        this(reads, writes, readMaxInFlight, maxInFlight, exceptionResolver, elapsedSince(System.nanoTime()));
+    }
+
+    public RateLimitFilter(TokenBuckets reads, TokenBuckets writes, int readMaxInFlight, int maxInFlight,
+                           HandlerExceptionResolver exceptionResolver, LongSupplier nanoClock) {
+        this.reads = reads;
+        this.writes = writes;
+        this.readMaxInFlight = readMaxInFlight;
+        this.maxInFlight = maxInFlight;
+        this.exceptionResolver = exceptionResolver;
+        this.nanoClock = nanoClock;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        boolean read = "GET".equals(request.getMethod()) || "HEAD".equals(request.getMethod());
+        boolean released = false;
+        int current = inFlight.incrementAndGet();
+        try {
+            if (current > (read ? readMaxInFlight : maxInFlight)) {
+                exceptionResolver.resolveException(request, response, null, OVERLOADED_EXCEPTION);
+                return;
+            }
+            long wait = (read ? reads : writes).tryAcquire(request.getRemoteAddr(), nanoClock.getAsLong());
+            if (wait > 0) {
+                long retryAfter = Math.max(1, TimeUnit.NANOSECONDS.toSeconds(wait + 999_999_999L));
+                exceptionResolver.resolveException(request, response, null, new TooManyRequestsException(RATE_LIMITED, retryAfter));
+                return;
+            }
+            chain.doFilter(request, response);
+            //os endpoints /api/async seguem em andamento ate o fim do processamento assincrono
+            if (request.isAsyncStarted()) {
+                request.getAsyncContext().addListener(new ReleaseOnComplete());
+                released = true;
+            }
+        } finally {
+            if (!released) {
+                inFlight.decrementAndGet();
+            }
+        }
+    }
+
+    int getInFlight() {
+        return inFlight.get();
+    }
+
+    private static LongSupplier elapsedSince(long origin) {
+        return () -> System.nanoTime() - origin;
+    }
+
+    private class ReleaseOnComplete implements AsyncListener {
+
+        @Override
+        public void onComplete(AsyncEvent event) {
+            inFlight.decrementAndGet();
+        }
+
+        @Override
+        public void onTimeout(AsyncEvent event) {
+        }
+
+        @Override
+        public void onError(AsyncEvent event) {
+        }
+
+        @Override
+        public void onStartAsync(AsyncEvent event) {
+        }
+    }
+}
@@ -0,0 +1,54 @@
+package com.dev.unitests.ratelimit;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Baldes de fichas por cliente, na forma GCRA: cada balde guarda um unico long, o instante teorico
+ * em que a proxima ficha estara disponivel, atualizado por CAS.
+ * <p>
+ * Os baldes ficam num array de tamanho fixo e o cliente cai em uma faixa pelo hash da chave, entao
+ * a memoria nao cresce com o numero de clientes e nao ha o que expirar; clientes que colidem
+ * dividem o mesmo balde.
+ */
+public class TokenBuckets {
+
+    private final AtomicLongArray nextFree;
+    private final int mask;
+    private final long intervalNanos;
+    private final long burstNanos;
+
+    /**
+     * @param stripes arredondado para potencia de 2
+     */
+    public TokenBuckets(double perSecond, int burst, int stripes) {
+        int size = Integer.highestOneBit(Math.max(1, stripes - 1)) << 1;
+        this.nextFree = new AtomicLongArray(size);
+        this.mask = size - 1;
+        this.intervalNanos = (long) (1_000_000_000L / perSecond);
+        this.burstNanos = intervalNanos * (Math.max(1, burst) - 1);
+    }
+
+    /**
+     * @param now instante em nanos, nao negativo e crescente
+     * @return 0 quando a ficha foi consumida, ou quantos nanos faltam para a proxima
+     */
+    public long tryAcquire(String key, long now) {
+        int stripe = stripe(key);
+        while (true) {
+            long stored = nextFree.get(stripe);
+            long next = Math.max(stored, now);
+            long wait = next - burstNanos - now;
+            if (wait > 0) {
+                return wait;
+            }
+            if (nextFree.compareAndSet(stripe, stored, next + intervalNanos)) {
+                return 0;
+            }
+        }
+    }
+
+    private int stripe(String key) {
+        int h = key.hashCode();
+        return (h ^ (h >>> 16)) & mask;
+    }
+}
@@ -1,12 +1,43 @@
 package com.dev.unitests.repository;
 
+import com.dev.unitests.config.SecondLevelCacheConfiguration;
 import com.dev.unitests.model.entity.Book;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 
+import javax.persistence.LockModeType;
+import javax.persistence.QueryHint;
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
-public interface BookRepository extends JpaRepository<Book, Long> {
+import static org.hibernate.jpa.QueryHints.HINT_CACHEABLE;
+import static org.hibernate.jpa.QueryHints.HINT_CACHE_REGION;
+
+public interface BookRepository extends JpaRepository<Book, Long>, BookRepositoryCustom {
     boolean existsByIsbn(String isbn);
 
+    //cache de consulta: invalidado pelo Hibernate a cada escrita de Book pela entidade; os updates de
+    //BookRepositoryCustom nao mudam o isbn e nao o invalidam
+    @QueryHints({@QueryHint(name = HINT_CACHEABLE, value = "true"),
+            @QueryHint(name = HINT_CACHE_REGION, value = SecondLevelCacheConfiguration.BOOK_BY_ISBN_REGION)})
     Optional<Book> findByIsbn(String isbn);
+
+    List<Book> findByIsbnIn(Collection<String> isbns);
+
+    @Query(" select b.isbn from Book b where b.isbn in :isbns ")
+    List<String> findExistingIsbns(@Param("isbns") Collection<String> isbns);
+
+    //trava (select ... for update) os livros ainda disponiveis, em ordem de id para lotes concorrentes nao se
+    //travarem em ciclo; quem empresta em paralelo espera o commit e depois nao os ve mais disponiveis
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query(" select b.id from Book b where b.id in :ids and b.currentLoanId is null order by b.id ")
+    List<Long> lockAvailableByIdIn(@Param("ids") Collection<Long> ids);
+
+    //base da ETag sem carregar o livro
+    @Query(" select b.version from Book b where b.id = :id ")
+    Optional<Long> findVersionById(@Param("id") Long id);
 }
@@ -0,0 +1,42 @@
+package com.dev.unitests.repository;
+
+import com.dev.unitests.model.entity.Book;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+
+import java.util.Collection;
+
+public interface BookRepositoryCustom {
+
+    Page<Book> search(Book filter, Pageable pageable);
+
+    Page<Book> search(Book filter, boolean availableOnly, Pageable pageable);
+
+    Slice<Book> searchAfter(Book filter, Long afterId, int size);
+
+    /**
+     * Atualiza apenas os campos informados (nao nulos) com um unico update por id, sem carregar o livro.
+     * Com expectedVersion so altera se a versao ainda for a mesma.
+     * Assim como os updates de emprestimo, tira do cache de segundo nivel apenas este livro.
+     *
+     * @return linhas alteradas: 0 quando o livro nao existe ou a versao mudou
+     */
+    int updatePartial(Long id, Long expectedVersion, String title, String author);
+
+    //os updates abaixo mudam a disponibilidade exposta no BookDTO, entao tambem incrementam a versao
+
+    /**
+     * @return 0 quando o livro ja tem outro emprestimo aberto
+     */
+    int markLoaned(Long bookId, Long loanId);
+
+    int markReturned(Long bookId, Long loanId);
+
+    int markReturnedByLoanIds(Collection<Long> loanIds);
+
+    /**
+     * Copia para o livro o emprestimo aberto em loan.open_book_id; os inserts de loan precisam ter ido ao banco.
+     */
+    int syncCurrentLoan(Collection<Long> bookIds);
+}
@@ -0,0 +1,255 @@
+package com.dev.unitests.repository;
+
+import com.dev.unitests.model.entity.Book;
+import org.hibernate.query.NativeQuery;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
+import org.springframework.data.jpa.repository.query.QueryUtils;
+import org.springframework.data.repository.support.PageableExecutionUtils;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.persistence.Cache;
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import javax.persistence.Query;
+import javax.persistence.TypedQuery;
+import javax.persistence.criteria.CriteriaBuilder;
+import javax.persistence.criteria.CriteriaQuery;
+import javax.persistence.criteria.Predicate;
+import javax.persistence.criteria.Root;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Busca de livros com os mesmos filtros do Example usado antes (prefixo, sem diferenciar
+ * maiusculas), mas escrita como intervalo sobre as colunas normalizadas para usar os indices.
+ * Os updates sem carregar o livro sao SQL nativo, para tirar do cache de segundo nivel so os livros alterados.
+ */
+public class BookRepositoryCustomImpl implements BookRepositoryCustom {
+
+    //espaco de consulta que nenhuma entidade nem consulta em cache usa
+    private static final String BOOK_ROW_SPACE = "book_row";
+    private static final String LOAN_TABLE = "loan";
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public Page<Book> search(Book filter, Pageable pageable) {
+        return search(filter, false, pageable);
+    }
+
+    @Override
+    public Page<Book> search(Book filter, boolean availableOnly, Pageable pageable) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Book> query = cb.createQuery(Book.class);
+        Root<Book> root = query.from(Book.class);
+        query.select(root).where(predicates(filter, availableOnly, root, cb));
+        if (pageable.getSort().isSorted()) {
+            query.orderBy(QueryUtils.toOrders(pageable.getSort(), root, cb));
+        }
+
+        TypedQuery<Book> typedQuery = entityManager.createQuery(query);
+        if (pageable.isPaged()) {
+            typedQuery.setFirstResult((int) pageable.getOffset());
+            typedQuery.setMaxResults(pageable.getPageSize());
+        }
+        return PageableExecutionUtils.getPage(typedQuery.getResultList(), pageable, () -> count(filter, availableOnly));
+    }
+
+    @Override
+    public Slice<Book> searchAfter(Book filter, Long afterId, int size) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Book> query = cb.createQuery(Book.class);
+        Root<Book> root = query.from(Book.class);
+
+        Predicate[] predicates = predicates(filter, false, root, cb);
+        if (afterId != null) {
+            Predicate[] withKey = new Predicate[predicates.length + 1];
+            System.arraycopy(predicates, 0, withKey, 0, predicates.length);
+            withKey[predicates.length] = cb.greaterThan(root.get("id"), afterId);
+            predicates = withKey;
+        }
+        query.select(root)
+                .where(predicates)
+                .orderBy(cb.asc(root.get("id")));
+
+        //busca um registro a mais para saber se existe proxima fatia, sem count
+        List<Book> content = entityManager.createQuery(query)
+                .setMaxResults(size + 1)
+                .getResultList();
+
+        boolean hasNext = content.size() > size;
+        if (hasNext) {
+            content = new ArrayList<>(content.subList(0, size));
+        }
+        return new SliceImpl<>(content, PageRequest.of(0, size), hasNext);
+    }
+
+    @Override
+    @Transactional
+    public int updatePartial(Long id, Long expectedVersion, String title, String author) {
+        //o update em massa nao passa pelo @PreUpdate, entao as colunas de busca vao junto
+        StringBuilder sql = new StringBuilder(" update book set version = version + 1 ");
+        if (title != null) {
+            sql.append(", title = :title, title_search = :titleSearch ");
+        }
+        if (author != null) {
+            sql.append(", author = :author, author_search = :authorSearch ");
+        }
+        sql.append(" where id = :id ");
+        if (expectedVersion != null) {
+            sql.append(" and version = :version ");
+        }
+
+        Query query = nativeUpdate(sql.toString()).setParameter("id", id);
+        if (title != null) {
+            query.setParameter("title", title).setParameter("titleSearch", Book.normalize(title));
+        }
+        if (author != null) {
+            query.setParameter("author", author).setParameter("authorSearch", Book.normalize(author));
+        }
+        if (expectedVersion != null) {
+            query.setParameter("version", expectedVersion);
+        }
+        return executeAndEvict(query, Collections.singletonList(id));
+    }
+
+    @Override
+    @Transactional
+    public int markLoaned(Long bookId, Long loanId) {
+        Query query = nativeUpdate(" update book set current_loan_id = :loanId, version = version + 1 " +
+                " where id = :bookId and (current_loan_id is null or current_loan_id = :loanId) ")
+                .setParameter("bookId", bookId)
+                .setParameter("loanId", loanId);
+        return executeAndEvict(query, Collections.singletonList(bookId));
+    }
+
+    @Override
+    @Transactional
+    public int markReturned(Long bookId, Long loanId) {
+        Query query = nativeUpdate(" update book set current_loan_id = null, version = version + 1 " +
+                " where id = :bookId and current_loan_id = :loanId ")
+                .setParameter("bookId", bookId)
+                .setParameter("loanId", loanId);
+        return executeAndEvict(query, Collections.singletonList(bookId));
+    }
+
+    @Override
+    @Transactional
+    public int markReturnedByLoanIds(Collection<Long> loanIds) {
+        if (loanIds.isEmpty()) {
+            return 0;
+        }
+        //os ids dos livros so servem para a remocao do cache; os emprestimos ja estao travados pelo chamador
+        List<Long> bookIds = entityManager.createQuery(" select b.id from Book b where b.currentLoanId in :loanIds ", Long.class)
+                .setParameter("loanIds", loanIds)
+                .getResultList();
+        if (bookIds.isEmpty()) {
+            return 0;
+        }
+        Query query = nativeUpdate(" update book set current_loan_id = null, version = version + 1 " +
+                " where id in (:bookIds) and current_loan_id in (:loanIds) ")
+                .setParameter("bookIds", bookIds)
+                .setParameter("loanIds", loanIds);
+        return executeAndEvict(query, bookIds);
+    }
+
+    @Override
+    @Transactional
+    public int syncCurrentLoan(Collection<Long> bookIds) {
+        if (bookIds.isEmpty()) {
+            return 0;
+        }
+        Query query = nativeUpdate(" update book set current_loan_id = (select l.id from loan l where l.open_book_id = book.id), " +
+                " version = version + 1 where id in (:bookIds) ")
+                .setParameter("bookIds", bookIds);
+        query.unwrap(NativeQuery.class).addSynchronizedQuerySpace(LOAN_TABLE);
+        return executeAndEvict(query, new ArrayList<>(bookIds));
+    }
+
+    /**
+     * Update nativo sincronizado so com BOOK_ROW_SPACE. Como update JPQL em Book, ou como SQL nativo sem espaco
+     * declarado, o Hibernate esvaziaria a regiao inteira do Book (e sem espaco todas as regioes) e invalidaria
+     * o cache de consulta por isbn; aqui quem remove do cache e o executeAndEvict, so pelos ids alterados.
+     * Nao faz flush de alteracoes pendentes em Book.
+     */
+    private Query nativeUpdate(String sql) {
+        Query query = entityManager.createNativeQuery(sql);
+        query.unwrap(NativeQuery.class).addSynchronizedQuerySpace(BOOK_ROW_SPACE);
+        return query;
+    }
+
+    //mesmo esquema da limpeza do Hibernate para updates em massa: remove antes e de novo ao fim da transacao,
+    //para nao ficar no cache uma versao carregada por outra transacao antes do commit
+    private int executeAndEvict(Query query, List<Long> bookIds) {
+        Cache cache = entityManager.getEntityManagerFactory().getCache();
+        bookIds.forEach(id -> cache.evict(Book.class, id));
+        int updated = query.executeUpdate();
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+                @Override
+                public void afterCompletion(int status) {
+                    bookIds.forEach(id -> cache.evict(Book.class, id));
+                }
+            });
+        }
+        return updated;
+    }
+
+    private long count(Book filter, boolean availableOnly) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Long> query = cb.createQuery(Long.class);
+        Root<Book> root = query.from(Book.class);
+        query.select(cb.count(root)).where(predicates(filter, availableOnly, root, cb));
+        return entityManager.createQuery(query).getSingleResult();
+    }
+
+    private Predicate[] predicates(Book filter, boolean availableOnly, Root<Book> root, CriteriaBuilder cb) {
+        List<Predicate> predicates = new ArrayList<>();
+        if (filter.getId() != null) {
+            predicates.add(cb.equal(root.get("id"), filter.getId()));
+        }
+        if (availableOnly) {
+            predicates.add(cb.isNull(root.get("currentLoanId")));
+        }
+        addPrefix(predicates, root, cb, "titleSearch", filter.getTitle());
+        addPrefix(predicates, root, cb, "authorSearch", filter.getAuthor());
+        addPrefix(predicates, root, cb, "isbnSearch", filter.getIsbn());
+        return predicates.toArray(new Predicate[0]);
+    }
+
+    private void addPrefix(List<Predicate> predicates, Root<Book> root, CriteriaBuilder cb,
+                           String attribute, String value) {
+        if (value == null) {
+            return;
+        }
+        String prefix = Book.normalize(value);
+        predicates.add(cb.greaterThanOrEqualTo(root.get(attribute), prefix));
+        String upperBound = upperBound(prefix);
+        if (upperBound != null) {
+            predicates.add(cb.lessThan(root.get(attribute), upperBound));
+        }
+    }
+
+    /**
+     * Menor texto maior que todos os que comecam com o prefixo, ou null quando nao ha limite.
+     */
+    static String upperBound(String prefix) {
+        int end = prefix.length();
+        while (end > 0 && prefix.charAt(end - 1) == Character.MAX_VALUE) {
+            end--;
+        }
+        if (end == 0) {
+            return null;
+        }
+        return prefix.substring(0, end - 1) + (char) (prefix.charAt(end - 1) + 1);
+    }
+}
@@ -1,23 +1,124 @@
 package com.dev.unitests.repository;
 
-import com.dev.unitests.model.entity.Book;
 import com.dev.unitests.model.entity.Loan;
+import com.dev.unitests.repository.projection.CustomerLoanCount;
+import com.dev.unitests.repository.projection.LoanStatus;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 
+import javax.persistence.LockModeType;
+import javax.persistence.QueryHint;
+
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.hibernate.jpa.QueryHints.HINT_FETCH_SIZE;
+import static org.hibernate.jpa.QueryHints.HINT_READONLY;
+
 public interface LoanRepository extends JpaRepository<Loan, Long> {
 
-    @Query(value = " select case when ( count(l.id) > 0 ) then true else false end " +
-            " from Loan l where l.book = :book and ( l.returned is null or l.returned is false ) ")
-        //jpql
-    boolean existsByBookAndNotReturned(@Param("book") Book book);
+    //com um filtro so, cada consulta usa o proprio indice; o OR abaixo fica para quando vem os dois
+    @Query(value = " select l from Loan as l join fetch l.book where l.customer = :customer ",
+            countQuery = " select count(l) from Loan as l where l.customer = :customer ")
+    Page<Loan> findByCustomer(@Param("customer") String customer, Pageable pageable);
+
+    @Query(value = " select l from Loan as l join fetch l.book as b where b.isbn = :isbn ",
+            countQuery = " select count(l) from Loan as l join l.book as b where b.isbn = :isbn ")
+    Page<Loan> findByBookIsbn(@Param("isbn") String isbn, Pageable pageable);
+
+    @Query(" select l from Loan as l join fetch l.book where l.customer = :customer and l.id > :afterId order by l.id ")
+    Slice<Loan> findByCustomerAfter(@Param("customer") String customer, @Param("afterId") Long afterId, Pageable pageable);
+
+    @Query(" select l from Loan as l join fetch l.book as b where b.isbn = :isbn and l.id > :afterId order by l.id ")
+    Slice<Loan> findByBookIsbnAfter(@Param("isbn") String isbn, @Param("afterId") Long afterId, Pageable pageable);
 
-    @Query(value = " select l from Loan as l join l.book as b where b.isbn = :isbn or l.customer =:customer ")
+    @Query(value = " select l from Loan as l join fetch l.book as b where b.isbn = :isbn or l.customer =:customer ",
+            countQuery = " select count(l) from Loan as l join l.book as b where b.isbn = :isbn or l.customer =:customer ")
     Page<Loan> findByBookIsbnOrCustomer(
             @Param("isbn") String isbn,
             @Param("customer") String customer,
             Pageable pageable);
+
+    @Query(value = " select l from Loan as l join fetch l.book as b " +
+            " where ( b.isbn = :isbn or l.customer = :customer ) and l.id > :afterId order by l.id ")
+    Slice<Loan> findByBookIsbnOrCustomerAfter(
+            @Param("isbn") String isbn,
+            @Param("customer") String customer,
+            @Param("afterId") Long afterId,
+            Pageable pageable);
+
+    //historico do cliente do mais recente ao mais antigo, percorrendo idx_loan_customer_history de tras para frente
+    @Query(" select l from Loan as l join fetch l.book where l.customer = :customer " +
+            " order by l.loanDate desc, l.id desc ")
+    Slice<Loan> findCustomerHistory(@Param("customer") String customer, Pageable pageable);
+
+    @Query(" select l from Loan as l join fetch l.book where l.customer = :customer " +
+            " and (l.loanDate < :beforeDate or (l.loanDate = :beforeDate and l.id < :beforeId)) " +
+            " order by l.loanDate desc, l.id desc ")
+    Slice<Loan> findCustomerHistoryBefore(
+            @Param("customer") String customer,
+            @Param("beforeDate") LocalDate beforeDate,
+            @Param("beforeId") Long beforeId,
+            Pageable pageable);
+
+    @Query(" select new com.dev.unitests.repository.projection.CustomerLoanCount(count(l), " +
+            " coalesce(sum(case when l.returned = false then 1 else 0 end), 0)) " +
+            " from Loan l where l.customer = :customer ")
+    CustomerLoanCount countByCustomer(@Param("customer") String customer);
+
+    //keyset a partir da marca (fromDate, afterId) ate o corte; o intervalo em loan_date usa idx_loan_returned_date
+    //um lote inteiro (library.overdue.batch-size) por ida ao banco; o padrao do H2 em modo servidor sao 100 linhas
+    @QueryHints(@QueryHint(name = HINT_FETCH_SIZE, value = "1000"))
+    @Query(" select l from Loan as l join fetch l.book " +
+            " where l.returned = false and l.loanDate >= :fromDate and l.loanDate < :cutoff " +
+            " and not (l.loanDate = :fromDate and l.id <= :afterId) " +
+            " order by l.loanDate, l.id ")
+    List<Loan> findOverdueAfter(
+            @Param("fromDate") LocalDate fromDate,
+            @Param("afterId") Long afterId,
+            @Param("cutoff") LocalDate cutoff,
+            Pageable pageable);
+
+    @Query(value = " select l from Loan as l join fetch l.book " +
+            " where l.returned = false and l.loanDate < :cutoff order by l.loanDate, l.id ",
+            countQuery = " select count(l) from Loan as l where l.returned = false and l.loanDate < :cutoff ")
+    Page<Loan> findOverdue(@Param("cutoff") LocalDate cutoff, Pageable pageable);
+
+    //ate IN_CLAUSE_SIZE (1000) linhas por consulta em LoanServiceImpl.returnBatch
+    @QueryHints(@QueryHint(name = HINT_FETCH_SIZE, value = "1000"))
+    @Query(" select new com.dev.unitests.repository.projection.LoanStatus(l.id, b.isbn, l.returned) " +
+            " from Loan l join l.book b where l.id in :ids ")
+    List<LoanStatus> findStatusByIdIn(@Param("ids") Collection<Long> ids);
+
+    @QueryHints(@QueryHint(name = HINT_FETCH_SIZE, value = "1000"))
+    @Query(" select new com.dev.unitests.repository.projection.LoanStatus(l.id, b.isbn, l.returned) " +
+            " from Loan l join l.book b where b.isbn in :isbns and l.returned = false ")
+    List<LoanStatus> findOpenStatusByIsbnIn(@Param("isbns") Collection<String> isbns);
+
+    //trava (select ... for update) as linhas ainda abertas; um lote concorrente espera e depois nao as ve mais abertas
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query(" select l.id from Loan l where l.id in :ids and l.returned = false ")
+    List<Long> lockOpenByIdIn(@Param("ids") Collection<Long> ids);
+
+    //devolucao em lote sem carregar as entidades; libera open_book_id junto para o indice unico
+    @Modifying
+    @Query(" update Loan l set l.returned = true, l.openBookId = null, l.version = l.version + 1 where l.id in :ids and l.returned = false ")
+    int markReturned(@Param("ids") Collection<Long> ids);
+
+    //cursor forward-only em ordem de id; deve ser consumido dentro de uma transacao e fechado ao final
+    @QueryHints({
+            @QueryHint(name = HINT_FETCH_SIZE, value = "1000"),
+            @QueryHint(name = HINT_READONLY, value = "true")
+    })
+    @Query(" select l from Loan as l join fetch l.book order by l.id ")
+    Stream<Loan> streamAllWithBook();
 }
@@ -0,0 +1,7 @@
+package com.dev.unitests.repository;
+
+import com.dev.unitests.model.entity.ScanWatermark;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+public interface ScanWatermarkRepository extends JpaRepository<ScanWatermark, String> {
+}
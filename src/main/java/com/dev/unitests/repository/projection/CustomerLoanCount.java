@@ -0,0 +1,11 @@
+package com.dev.unitests.repository.projection;
+
+import lombok.Value;
+
+//contagens de emprestimos de um cliente, agregadas no banco
+@Value
+public class CustomerLoanCount {
+
+    private long total;
+    private long open;
+}
@@ -0,0 +1,12 @@
+package com.dev.unitests.repository.projection;
+
+import lombok.Value;
+
+//id e situacao de um emprestimo, sem carregar a entidade nem o livro
+@Value
+public class LoanStatus {
+
+    private Long id;
+    private String isbn;
+    private Boolean returned;
+}
@@ -0,0 +1,11 @@
+package com.dev.unitests.service;
+
+import com.dev.unitests.api.dto.BookDTO;
+import com.dev.unitests.api.dto.BookImportResultDTO;
+
+import java.util.Iterator;
+
+public interface BookImportService {
+
+    BookImportResultDTO importBooks(Iterator<BookDTO> books);
+}
@@ -1,9 +1,12 @@
 package com.dev.unitests.service;
 
 import com.dev.unitests.model.entity.Book;
+import com.dev.unitests.service.search.SearchOperator;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 
+import java.util.List;
 import java.util.Optional;
 
 public interface BookService {
@@ -12,11 +15,27 @@ public interface BookService {
 
     Optional<Book> getById(Long id);
 
+    Optional<Long> getVersion(Long id);
+
     void delete(Book book);
 
     Book update(Book book);
 
+    /**
+     * Altera titulo e/ou autor (os nao nulos) sem carregar o livro.
+     *
+     * @return false quando o livro nao existe
+     * @throws com.dev.unitests.exception.PreconditionFailedException quando a versao informada nao e a atual
+     */
+    boolean updatePartial(Long id, Long expectedVersion, String title, String author);
+
     Page<Book> find(Book filter, Pageable pageRequest);
 
+    Page<Book> findAvailable(Book filter, Pageable pageRequest);
+
+    Slice<Book> findAfter(Book filter, Long afterId, int size);
+
     Optional<Book> getBookByIsbn(String isbn);
+
+    List<Book> search(String query, SearchOperator operator, int limit);
 }
@@ -1,19 +1,45 @@
 package com.dev.unitests.service;
 
+import com.dev.unitests.api.dto.CustomerLoanSummaryDTO;
+import com.dev.unitests.api.dto.LoanBatchResultDTO;
+import com.dev.unitests.api.dto.LoanDTO;
 import com.dev.unitests.api.dto.LoanFilterDTO;
+import com.dev.unitests.api.dto.LoanReturnResultDTO;
 import com.dev.unitests.model.entity.Loan;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 
+import java.time.LocalDate;
+import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.function.Consumer;
 
 public interface LoanService {
     Loan save(Loan loan);
 
+    List<LoanBatchResultDTO> saveBatch(List<LoanDTO> loans);
+
     Optional<Loan> getById(Long id);
 
     Loan update(Loan loan);
 
+    LoanReturnResultDTO returnBatch(List<Long> ids, List<String> isbns);
+
+    void exportAll(Consumer<Loan> consumer);
+
+    Page<Loan> findOverdue(LocalDate cutoff, Pageable pageable);
+
     Page<Loan> find(LoanFilterDTO filter, Pageable pageable);
+
+    Slice<Loan> findAfter(LoanFilterDTO filter, Long afterId, int size);
+
+    /**
+     * Emprestimos do cliente do mais recente ao mais antigo, continuando antes de (beforeDate, beforeId)
+     * quando informados.
+     */
+    Slice<Loan> findCustomerHistory(String customer, LocalDate beforeDate, Long beforeId, int size);
+
+    CustomerLoanSummaryDTO getCustomerSummary(String customer);
 }
@@ -0,0 +1,241 @@
+package com.dev.unitests.service.cache;
+
+import com.dev.unitests.model.entity.Book;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+/**
+ * Cache LRU com expiracao por tempo das consultas de livro por isbn.
+ * Guarda tambem as consultas sem resultado (Optional vazio).
+ * De um livro encontrado guarda so o id: cada acerto le o livro pelo id (cache de segundo nivel), entao
+ * cada chamador recebe sua propria instancia e ve as alteracoes que nao passam por aqui, como emprestimos.
+ * Acertos, faltas e remocoes saem em cache.gets/cache.evictions/cache.size (tag cache=isbn).
+ */
+@Component
+public class IsbnCache implements MeterBinder {
+
+    static final String NAME = "isbn";
+
+    private final int maxSize;
+    private final long ttlMillis;
+    private final Clock clock;
+
+    private final LinkedHashMap<String, Entry> entries;
+
+    //isbn de cada livro presente em entries, para evictBook nao percorrer o cache; protegido pelo mesmo monitor
+    private final Map<Long, String> isbnById = new HashMap<>();
+
+    /**
+     * Incrementado a cada invalidacao, impede que uma leitura iniciada antes
+     * de uma escrita coloque no cache um valor ja desatualizado.
+     */
+    private final AtomicLong generation = new AtomicLong();
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    @Autowired
+    public IsbnCache(@Value("${library.isbn-cache.max-size:10000}") int maxSize,
+                     @Value("${library.isbn-cache.ttl:PT5M}") Duration ttl) {
+        this(maxSize, ttl, Clock.systemUTC());
+    }
+
+    public IsbnCache(int maxSize, Duration ttl, Clock clock) {
+        this.maxSize = maxSize;
+        this.ttlMillis = ttl.toMillis();
+        this.clock = clock;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true);
+    }
+
+    /**
+     * @param loader consulta pelo isbn, usada nas faltas
+     * @param reader leitura pelo id, usada nos acertos
+     */
+    public Optional<Book> get(String isbn, Function<String, Optional<Book>> loader, Function<Long, Optional<Book>> reader) {
+        if (isbn == null) {
+            return loader.apply(isbn);
+        }
+        Entry entry = lookup(isbn);
+        if (entry != null) {
+            if (entry.bookId == null) {
+                hits.increment();
+                return Optional.empty();
+            }
+            Optional<Book> book = reader.apply(entry.bookId);
+            if (book.isPresent() && isbn.equals(book.get().getIsbn())) {
+                hits.increment();
+                return book;
+            }
+            //o livro saiu ou mudou de isbn sem passar pelo cache
+            evict(isbn);
+        }
+        misses.increment();
+        long startGeneration = generation.get();
+        Optional<Book> book = loader.apply(isbn);
+        put(isbn, book.map(Book::getId).orElse(null), startGeneration);
+        return book;
+    }
+
+    /**
+     * Responde pelo cache quando possivel. Numa falta so o resultado negativo e guardado,
+     * pois a consulta de existencia nao traz o livro.
+     */
+    public boolean exists(String isbn, Predicate<String> loader) {
+        if (isbn == null) {
+            return loader.test(isbn);
+        }
+        Entry entry = lookup(isbn);
+        if (entry != null) {
+            hits.increment();
+            return entry.bookId != null;
+        }
+        misses.increment();
+        long startGeneration = generation.get();
+        boolean exists = loader.test(isbn);
+        if (!exists) {
+            put(isbn, null, startGeneration);
+        }
+        return exists;
+    }
+
+    public void evict(String isbn) {
+        generation.incrementAndGet();
+        if (isbn == null) {
+            return;
+        }
+        synchronized (entries) {
+            unlink(isbn, entries.remove(isbn));
+        }
+    }
+
+    //para quem alterou o livro sem carregar o isbn; acha a entrada pelo id, sem consultar o banco
+    public void evictBook(Long id) {
+        generation.incrementAndGet();
+        if (id == null) {
+            return;
+        }
+        synchronized (entries) {
+            String isbn = isbnById.remove(id);
+            if (isbn != null) {
+                entries.remove(isbn);
+            }
+        }
+    }
+
+    public void clear() {
+        generation.incrementAndGet();
+        synchronized (entries) {
+            entries.clear();
+            isbnById.clear();
+        }
+    }
+
+    public int size() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        FunctionCounter.builder("cache.gets", hits, LongAdder::sum)
+                .tags("cache", NAME, "cacheManager", "library", "result", "hit")
+                .register(registry);
+        FunctionCounter.builder("cache.gets", misses, LongAdder::sum)
+                .tags("cache", NAME, "cacheManager", "library", "result", "miss")
+                .register(registry);
+        FunctionCounter.builder("cache.evictions", evictions, LongAdder::sum)
+                .tags("cache", NAME, "cacheManager", "library")
+                .register(registry);
+        Gauge.builder("cache.size", this, IsbnCache::size)
+                .tags("cache", NAME, "cacheManager", "library")
+                .register(registry);
+    }
+
+    public long getHitCount() {
+        return hits.sum();
+    }
+
+    public long getMissCount() {
+        return misses.sum();
+    }
+
+    public long getEvictionCount() {
+        return evictions.sum();
+    }
+
+    private Entry lookup(String isbn) {
+        long now = clock.millis();
+        synchronized (entries) {
+            Entry entry = entries.get(isbn);
+            if (entry == null) {
+                return null;
+            }
+            if (entry.expiresAt <= now) {
+                unlink(isbn, entries.remove(isbn));
+                evictions.increment();
+                return null;
+            }
+            return entry;
+        }
+    }
+
+    private void put(String isbn, Long bookId, long startGeneration) {
+        if (maxSize <= 0) {
+            return;
+        }
+        Entry entry = new Entry(bookId, clock.millis() + ttlMillis);
+        synchronized (entries) {
+            if (generation.get() != startGeneration) {
+                return;
+            }
+            unlink(isbn, entries.put(isbn, entry));
+            if (bookId != null) {
+                isbnById.put(bookId, isbn);
+            }
+            Iterator<Map.Entry<String, Entry>> eldest = entries.entrySet().iterator();
+            while (entries.size() > maxSize && eldest.hasNext()) {
+                Map.Entry<String, Entry> removed = eldest.next();
+                unlink(removed.getKey(), removed.getValue());
+                eldest.remove();
+                evictions.increment();
+            }
+        }
+    }
+
+    //chamado com o monitor de entries
+    private void unlink(String isbn, Entry removed) {
+        if (removed != null && removed.bookId != null) {
+            isbnById.remove(removed.bookId, isbn);
+        }
+    }
+
+    private static final class Entry {
+        //null: isbn sem livro
+        private final Long bookId;
+        private final long expiresAt;
+
+        private Entry(Long bookId, long expiresAt) {
+            this.bookId = bookId;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
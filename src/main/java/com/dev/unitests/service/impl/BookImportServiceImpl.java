@@ -0,0 +1,133 @@
+package com.dev.unitests.service.impl;
+
+import com.dev.unitests.api.dto.BookDTO;
+import com.dev.unitests.api.dto.BookImportResultDTO;
+import com.dev.unitests.model.entity.Book;
+import com.dev.unitests.repository.BookRepository;
+import com.dev.unitests.service.BookImportService;
+import com.dev.unitests.service.cache.IsbnCache;
+import com.dev.unitests.service.search.BookSearchIndex;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManager;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+@Service
+public class BookImportServiceImpl implements BookImportService {
+
+    private BookRepository repository;
+
+    private IsbnCache isbnCache;
+
+    private BookSearchIndex searchIndex;
+
+    private TransactionTemplate transactionTemplate;
+
+    private EntityManager entityManager;
+
+    private int batchSize;
+
+    public BookImportServiceImpl(BookRepository repository,
+                                 IsbnCache isbnCache,
+                                 BookSearchIndex searchIndex,
+                                 PlatformTransactionManager transactionManager,
+                                 EntityManager entityManager,
+                                 @Value("${library.book-import.batch-size:1000}") int batchSize) {
+        this.repository = repository;
+        this.isbnCache = isbnCache;
+        this.searchIndex = searchIndex;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.entityManager = entityManager;
+        this.batchSize = batchSize;
+    }
+
+    @Override
+    public BookImportResultDTO importBooks(Iterator<BookDTO> books) {
+        long start = System.nanoTime();
+        long received = 0;
+        long invalid = 0;
+        long imported = 0;
+
+        List<Book> batch = new ArrayList<>(batchSize);
+        while (books.hasNext()) {
+            BookDTO dto = books.next();
+            received++;
+            if (isBlank(dto.getTitle()) || isBlank(dto.getAuthor()) || isBlank(dto.getIsbn())) {
+                invalid++;
+                continue;
+            }
+            batch.add(Book.builder().title(dto.getTitle()).author(dto.getAuthor()).isbn(dto.getIsbn()).build());
+            if (batch.size() == batchSize) {
+                imported += insert(batch);
+                batch.clear();
+            }
+        }
+        if (!batch.isEmpty()) {
+            imported += insert(batch);
+        }
+
+        long elapsedNanos = System.nanoTime() - start;
+        return BookImportResultDTO.builder()
+                .received(received)
+                .imported(imported)
+                .duplicated(received - invalid - imported)
+                .invalid(invalid)
+                .elapsedMillis(TimeUnit.NANOSECONDS.toMillis(elapsedNanos))
+                .booksPerSecond(elapsedNanos == 0 ? 0 : imported * 1e9 / elapsedNanos)
+                .build();
+    }
+
+    /**
+     * Descarta os isbns ja cadastrados (uma consulta por lote) e os repetidos dentro do proprio lote,
+     * e insere o restante em uma transacao. Os lotes anteriores ja estao gravados, entao a consulta
+     * ao banco tambem cobre isbns repetidos entre lotes. Um isbn gravado por outra requisicao entre a
+     * consulta e o insert derruba so a transacao do lote, que e repetida e passa a conta-lo como duplicado.
+     */
+    private int insert(List<Book> batch) {
+        List<String> isbns = batch.stream().map(Book::getIsbn).distinct().collect(Collectors.toList());
+        while (true) {
+            Set<String> existing = new HashSet<>();
+            try {
+                List<Book> newBooks = transactionTemplate.execute(status -> {
+                    existing.addAll(repository.findExistingIsbns(isbns));
+                    Set<String> seen = new HashSet<>(existing);
+                    //copias: uma tentativa desfeita deixa id e versao nas entidades que tentou gravar
+                    List<Book> books = batch.stream()
+                            .filter(book -> seen.add(book.getIsbn()))
+                            .map(book -> Book.builder().title(book.getTitle()).author(book.getAuthor()).isbn(book.getIsbn()).build())
+                            .collect(Collectors.toList());
+
+                    repository.saveAll(books);
+                    repository.flush();
+                    //evita que o contexto de persistencia cresca durante importacoes grandes
+                    entityManager.clear();
+                    return books;
+                });
+                newBooks.forEach(book -> {
+                    isbnCache.evict(book.getIsbn());
+                    searchIndex.index(book);
+                });
+                return newBooks.size();
+            } catch (DataIntegrityViolationException e) {
+                //so repete se a violacao veio de um isbn novo no banco; qualquer outra continua sendo erro
+                if (repository.findExistingIsbns(isbns).size() <= existing.size()) {
+                    throw e;
+                }
+            }
+        }
+    }
+
+    private static boolean isBlank(String value) {
+        return value == null || value.trim().isEmpty();
+    }
+}
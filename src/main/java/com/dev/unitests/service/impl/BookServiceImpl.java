@@ -1,33 +1,57 @@
 package com.dev.unitests.service.impl;
 
 import com.dev.unitests.exception.BusinessException;
+import com.dev.unitests.exception.PreconditionFailedException;
 import com.dev.unitests.model.entity.Book;
 import com.dev.unitests.repository.BookRepository;
 import com.dev.unitests.service.BookService;
+import com.dev.unitests.service.cache.IsbnCache;
+import com.dev.unitests.service.search.BookSearchIndex;
+import com.dev.unitests.service.search.SearchOperator;
 import lombok.SneakyThrows;
-import org.springframework.data.domain.Example;
-import org.springframework.data.domain.ExampleMatcher;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.stereotype.Service;
 
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.stream.Collectors;
 
 @Service
 public class BookServiceImpl implements BookService {
 
     private BookRepository repository;
 
-    public BookServiceImpl(BookRepository repository) {
+    private IsbnCache isbnCache;
+
+    private BookSearchIndex searchIndex;
+
+    public BookServiceImpl(BookRepository repository, IsbnCache isbnCache, BookSearchIndex searchIndex) {
         this.repository = repository;
+        this.isbnCache = isbnCache;
+        this.searchIndex = searchIndex;
     }
 
     @Override
     public Book save(Book book) {
-        if (repository.existsByIsbn(book.getIsbn())) {
-            throw new BusinessException("Isbn já cadastrado");
+        if (isbnCache.exists(book.getIsbn(), repository::existsByIsbn)) {
+            throw BusinessException.ISBN_ALREADY_REGISTERED;
+        }
+        try {
+            Book saved = repository.save(book);
+            searchIndex.index(saved);
+            return saved;
+        } catch (DataIntegrityViolationException e) {
+            //outro cadastro com o mesmo isbn venceu a corrida; o indice unico garante a regra
+            throw BusinessException.ISBN_ALREADY_REGISTERED;
+        } finally {
+            isbnCache.evict(book.getIsbn());
         }
-        return repository.save(book);
     }
 
     @Override
@@ -35,6 +59,11 @@ public class BookServiceImpl implements BookService {
         return this.repository.findById(id);
     }
 
+    @Override
+    public Optional<Long> getVersion(Long id) {
+        return repository.findVersionById(id);
+    }
+
     @SneakyThrows
     @Override
     public void delete(Book book) {
@@ -42,6 +71,8 @@ public class BookServiceImpl implements BookService {
             throw new IllegalAccessException("Book id cannot be null");
         }
         this.repository.delete(book);
+        isbnCache.evict(book.getIsbn());
+        searchIndex.remove(book.getId());
     }
 
     @SneakyThrows
@@ -50,22 +81,60 @@ public class BookServiceImpl implements BookService {
         if (book.getId() == null || book == null) {
             throw new IllegalAccessException("Book id cannot be null");
         }
-        return this.repository.save(book);
+        try {
+            Book updated = this.repository.save(book);
+            searchIndex.index(updated);
+            return updated;
+        } finally {
+            isbnCache.evict(book.getIsbn());
+        }
+    }
+
+    @Override
+    public boolean updatePartial(Long id, Long expectedVersion, String title, String author) {
+        if (repository.updatePartial(id, expectedVersion, title, author) == 0) {
+            //so quando houve verificacao de versao vale uma segunda consulta para separar 404 de 412
+            if (expectedVersion != null && repository.existsById(id)) {
+                throw new PreconditionFailedException("Book " + id + " was modified by another request");
+            }
+            return false;
+        }
+        //o livro nao foi carregado: o cache sai pelo id e o indice troca so os campos alterados
+        isbnCache.evictBook(id);
+        searchIndex.update(id, title, author);
+        return true;
     }
 
     @Override
     public Page<Book> find(Book filter, Pageable pageRequest) {
-        Example<Book> example = Example.of
-                (filter, ExampleMatcher.matching()
-                        .withIgnoreCase()
-                        .withIgnoreNullValues()
-                        .withStringMatcher(ExampleMatcher.StringMatcher.STARTING));
+        return repository.search(filter, pageRequest);
+    }
+
+    @Override
+    public Page<Book> findAvailable(Book filter, Pageable pageRequest) {
+        return repository.search(filter, true, pageRequest);
+    }
 
-        return repository.findAll(example, pageRequest);
+    @Override
+    public Slice<Book> findAfter(Book filter, Long afterId, int size) {
+        return repository.searchAfter(filter, afterId == null ? 0L : afterId, size);
     }
 
     @Override
     public Optional<Book> getBookByIsbn(String isbn) {
-        return repository.findByIsbn(isbn);
+        return isbnCache.get(isbn, repository::findByIsbn, repository::findById);
+    }
+
+    @Override
+    public List<Book> search(String query, SearchOperator operator, int limit) {
+        List<Long> ids = searchIndex.search(query, operator, limit);
+        Map<Long, Integer> rank = new HashMap<>();
+        for (int i = 0; i < ids.size(); i++) {
+            rank.put(ids.get(i), i);
+        }
+        return repository.findAllById(ids)
+                .stream()
+                .sorted(Comparator.comparing(book -> rank.get(book.getId())))
+                .collect(Collectors.toList());
     }
 }
@@ -1,29 +1,143 @@
 package com.dev.unitests.service.impl;
 
+import com.dev.unitests.api.dto.CustomerLoanSummaryDTO;
+import com.dev.unitests.api.dto.LoanBatchResultDTO;
+import com.dev.unitests.api.dto.LoanDTO;
 import com.dev.unitests.api.dto.LoanFilterDTO;
+import com.dev.unitests.api.dto.LoanReturnResultDTO;
 import com.dev.unitests.exception.BusinessException;
+import com.dev.unitests.model.entity.Book;
 import com.dev.unitests.model.entity.Loan;
+import com.dev.unitests.repository.BookRepository;
 import com.dev.unitests.repository.LoanRepository;
+import com.dev.unitests.repository.projection.CustomerLoanCount;
+import com.dev.unitests.repository.projection.LoanStatus;
 import com.dev.unitests.service.LoanService;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
+import javax.persistence.EntityManager;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
+@Service
 public class LoanServiceImpl implements LoanService {
 
+    //limite de parametros por clausula IN aceito pela maioria dos bancos
+    private static final int IN_CLAUSE_SIZE = 1000;
+
     private LoanRepository repository;
 
-    public LoanServiceImpl(LoanRepository repository) {
+    private BookRepository bookRepository;
+
+    private EntityManager entityManager;
+
+    public LoanServiceImpl(LoanRepository repository, BookRepository bookRepository, EntityManager entityManager) {
         this.repository = repository;
+        this.bookRepository = bookRepository;
+        this.entityManager = entityManager;
     }
 
     @Override
+    @Transactional
     public Loan save(Loan loan) {
-        if (repository.existsByBookAndNotReturned(loan.getBook())) {
-            throw new BusinessException("Book already loaned");
+        Loan saved = repository.save(loan);
+        try {
+            //update condicional em Book no lugar de consultar os emprestimos abertos do livro
+            if (bookRepository.markLoaned(loan.getBook().getId(), saved.getId()) == 0) {
+                throw BusinessException.BOOK_ALREADY_LOANED;
+            }
+            repository.flush();
+        } catch (DataIntegrityViolationException e) {
+            //outro emprestimo do mesmo livro venceu a corrida; o indice unico em open_book_id garante a regra
+            throw BusinessException.BOOK_ALREADY_LOANED;
+        }
+        return saved;
+    }
+
+    @Override
+    @Transactional
+    public List<LoanBatchResultDTO> saveBatch(List<LoanDTO> loans) {
+        List<String> isbns = loans.stream()
+                .map(LoanDTO::getIsbn)
+                .filter(Objects::nonNull)
+                .distinct()
+                .collect(Collectors.toList());
+
+        Map<String, Book> booksByIsbn = new HashMap<>();
+        inChunks(isbns, chunk -> bookRepository.findByIsbnIn(chunk)
+                .forEach(book -> booksByIsbn.put(book.getIsbn(), book)));
+
+        Set<Long> loanedBookIds = booksByIsbn.values().stream()
+                .filter(book -> !book.isAvailable())
+                .map(Book::getId)
+                .collect(Collectors.toCollection(HashSet::new));
+
+        LocalDate loanDate = LocalDate.now();
+        List<LoanBatchResultDTO> results = new ArrayList<>(loans.size());
+        List<LoanBatchResultDTO> accepted = new ArrayList<>();
+        List<Loan> newLoans = new ArrayList<>();
+        for (LoanDTO dto : loans) {
+            LoanBatchResultDTO result = LoanBatchResultDTO.builder()
+                    .isbn(dto.getIsbn())
+                    .customer(dto.getCustomer())
+                    .build();
+            results.add(result);
+
+            Book book = booksByIsbn.get(dto.getIsbn());
+            if (book == null) {
+                result.setError("Book not found for passed isbn");
+            } else if (!loanedBookIds.add(book.getId())) {
+                result.setError("Book already loaned");
+            } else {
+                accepted.add(result);
+                newLoans.add(Loan.builder()
+                        .book(book)
+                        .customer(dto.getCustomer())
+                        .loanDate(loanDate)
+                        .build());
+            }
+        }
+
+        //o livro lido acima pode ter sido emprestado por outra requisicao; sem a trava o insert bateria no
+        //indice unico de open_book_id no flush e o lote inteiro falharia
+        List<Long> candidateIds = newLoans.stream().map(loan -> loan.getBook().getId()).sorted().collect(Collectors.toList());
+        Set<Long> claimed = new HashSet<>();
+        inChunks(candidateIds, chunk -> claimed.addAll(bookRepository.lockAvailableByIdIn(chunk)));
+        for (int i = newLoans.size() - 1; i >= 0; i--) {
+            if (!claimed.contains(newLoans.get(i).getBook().getId())) {
+                accepted.remove(i).setError("Book already loaned");
+                newLoans.remove(i);
+            }
         }
-        return repository.save(loan);
+
+        List<Loan> saved = repository.saveAll(newLoans);
+        for (int i = 0; i < saved.size(); i++) {
+            accepted.get(i).setId(saved.get(i).getId());
+        }
+
+        //os inserts precisam ir ao banco antes do update que le open_book_id
+        repository.flush();
+        List<Long> loanedNow = newLoans.stream().map(loan -> loan.getBook().getId()).collect(Collectors.toList());
+        inChunks(loanedNow, bookRepository::syncCurrentLoan);
+        return results;
     }
 
     @Override
@@ -32,12 +146,153 @@ public class LoanServiceImpl implements LoanService {
     }
 
     @Override
+    @Transactional
     public Loan update(Loan loan) {
-        return repository.save(loan);
+        Loan saved = repository.save(loan);
+        Long bookId = saved.getBook().getId();
+        if (Boolean.TRUE.equals(saved.getReturned())) {
+            bookRepository.markReturned(bookId, saved.getId());
+        } else if (bookRepository.markLoaned(bookId, saved.getId()) == 0) {
+            throw BusinessException.BOOK_ALREADY_LOANED;
+        }
+        return saved;
+    }
+
+    @Override
+    @Transactional
+    public LoanReturnResultDTO returnBatch(List<Long> ids, List<String> isbns) {
+        LoanReturnResultDTO result = new LoanReturnResultDTO();
+        Set<Long> toReturn = new LinkedHashSet<>();
+
+        //classifica os ids por projecao (id, isbn, returned), sem carregar emprestimo nem livro
+        List<Long> distinctIds = distinct(ids);
+        Map<Long, LoanStatus> statusById = new HashMap<>();
+        inChunks(distinctIds, chunk -> repository.findStatusByIdIn(chunk)
+                .forEach(status -> statusById.put(status.getId(), status)));
+        for (Long id : distinctIds) {
+            LoanStatus status = statusById.get(id);
+            if (status == null) {
+                result.getNotFound().add(id);
+            } else if (Boolean.TRUE.equals(status.getReturned())) {
+                result.getAlreadyReturned().add(id);
+            } else {
+                toReturn.add(id);
+            }
+        }
+
+        List<String> distinctIsbns = distinct(isbns);
+        Set<String> loanedIsbns = new HashSet<>();
+        Map<Long, String> isbnByLoanId = new HashMap<>();
+        inChunks(distinctIsbns, chunk -> repository.findOpenStatusByIsbnIn(chunk).forEach(status -> {
+            loanedIsbns.add(status.getIsbn());
+            if (toReturn.add(status.getId())) {
+                isbnByLoanId.put(status.getId(), status.getIsbn());
+            }
+        }));
+        for (String isbn : distinctIsbns) {
+            if (!loanedIsbns.contains(isbn)) {
+                result.getIsbnsWithoutOpenLoan().add(isbn);
+            }
+        }
+
+        //a classificacao acima nao trava nada: so entra em returned o que este lote travou ainda aberto
+        List<Long> returned = new ArrayList<>(toReturn.size());
+        inChunks(new ArrayList<>(toReturn), chunk -> {
+            Set<Long> locked = new HashSet<>(repository.lockOpenByIdIn(chunk));
+            if (!locked.isEmpty()) {
+                repository.markReturned(locked);
+                bookRepository.markReturnedByLoanIds(locked);
+            }
+            for (Long id : chunk) {
+                if (locked.contains(id)) {
+                    returned.add(id);
+                } else if (isbnByLoanId.containsKey(id)) {
+                    result.getIsbnsWithoutOpenLoan().add(isbnByLoanId.get(id));
+                } else {
+                    result.getAlreadyReturned().add(id);
+                }
+            }
+        });
+        result.setReturned(returned);
+        return result;
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public void exportAll(Consumer<Loan> consumer) {
+        try (Stream<Loan> loans = repository.streamAllWithBook()) {
+            loans.forEach(loan -> {
+                consumer.accept(loan);
+                //tira do contexto de persistencia o que ja foi escrito: memoria constante em qualquer volume
+                entityManager.detach(loan.getBook());
+                entityManager.detach(loan);
+            });
+        }
     }
 
+    @Override
+    public Page<Loan> findOverdue(LocalDate cutoff, Pageable pageable) {
+        return repository.findOverdue(cutoff, pageable);
+    }
+
+    //o OR entre isbn e cliente impede o uso dos indices, entao so e usado quando os dois filtros vem juntos
     @Override
     public Page<Loan> find(LoanFilterDTO filter, Pageable pageable) {
+        if (filter.getIsbn() == null && filter.getCustomer() != null) {
+            return repository.findByCustomer(filter.getCustomer(), pageable);
+        }
+        if (filter.getCustomer() == null && filter.getIsbn() != null) {
+            return repository.findByBookIsbn(filter.getIsbn(), pageable);
+        }
         return repository.findByBookIsbnOrCustomer(filter.getIsbn(), filter.getCustomer(), pageable);
     }
+
+    @Override
+    public Slice<Loan> findAfter(LoanFilterDTO filter, Long afterId, int size) {
+        Long after = afterId == null ? 0L : afterId;
+        if (filter.getIsbn() == null && filter.getCustomer() != null) {
+            return repository.findByCustomerAfter(filter.getCustomer(), after, PageRequest.of(0, size));
+        }
+        if (filter.getCustomer() == null && filter.getIsbn() != null) {
+            return repository.findByBookIsbnAfter(filter.getIsbn(), after, PageRequest.of(0, size));
+        }
+        return repository.findByBookIsbnOrCustomerAfter(
+                filter.getIsbn(), filter.getCustomer(), after, PageRequest.of(0, size));
+    }
+
+    @Override
+    public Slice<Loan> findCustomerHistory(String customer, LocalDate beforeDate, Long beforeId, int size) {
+        if (beforeDate == null) {
+            if (beforeId != null) {
+                throw new IllegalArgumentException("beforeId requires beforeDate");
+            }
+            return repository.findCustomerHistory(customer, PageRequest.of(0, size));
+        }
+        //sem id, o dia inteiro de beforeDate ainda entra
+        return repository.findCustomerHistoryBefore(
+                customer, beforeDate, beforeId == null ? Long.MAX_VALUE : beforeId, PageRequest.of(0, size));
+    }
+
+    @Override
+    public CustomerLoanSummaryDTO getCustomerSummary(String customer) {
+        CustomerLoanCount count = repository.countByCustomer(customer);
+        return CustomerLoanSummaryDTO.builder()
+                .customer(customer)
+                .totalLoans(count.getTotal())
+                .openLoans(count.getOpen())
+                .build();
+    }
+
+    private static <T> List<T> distinct(List<T> values) {
+        if (values == null) {
+            return Collections.emptyList();
+        }
+        return values.stream().filter(Objects::nonNull).distinct().collect(Collectors.toList());
+    }
+
+    private static <T> void inChunks(List<T> values, Consumer<List<T>> action) {
+        for (int from = 0; from < values.size(); from += IN_CLAUSE_SIZE) {
+            action.accept(values.subList(from, Math.min(from + IN_CLAUSE_SIZE, values.size())));
+        }
+    }
 }
@@ -0,0 +1,113 @@
+package com.dev.unitests.service.overdue;
+
+import com.dev.unitests.model.entity.Loan;
+import com.dev.unitests.model.entity.ScanWatermark;
+import com.dev.unitests.repository.LoanRepository;
+import com.dev.unitests.repository.ScanWatermarkRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Clock;
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * Varredura diaria de emprestimos vencidos (loanDate anterior a hoje - library.overdue.loan-days) e nao devolvidos.
+ * Continua do ultimo (loanDate, id) processado, gravado em scan_watermark, de forma que cada execucao
+ * le apenas os emprestimos que venceram desde a anterior, pelo indice (returned, loan_date, id).
+ * Cada lote publica um OverdueLoanEvent por emprestimo e avanca a marca na mesma transacao: se a
+ * transacao falhar o lote e reprocessado na proxima execucao (entrega ao menos uma vez).
+ */
+@Component
+public class OverdueLoanDetector {
+
+    static final String WATERMARK = "overdue-loans";
+    private static final LocalDate START = LocalDate.of(1970, 1, 1);
+
+    private LoanRepository loanRepository;
+
+    private ScanWatermarkRepository watermarkRepository;
+
+    private ApplicationEventPublisher eventPublisher;
+
+    private TransactionTemplate transactionTemplate;
+
+    private int loanDays;
+
+    private int batchSize;
+
+    private Clock clock;
+
+    @Autowired
+    public OverdueLoanDetector(LoanRepository loanRepository,
+                               ScanWatermarkRepository watermarkRepository,
+                               ApplicationEventPublisher eventPublisher,
+                               PlatformTransactionManager transactionManager,
+                               @Value("${library.overdue.loan-days:30}") int loanDays,
+                               @Value("${library.overdue.batch-size:1000}") int batchSize) {
+        this(loanRepository, watermarkRepository, eventPublisher, transactionManager, loanDays, batchSize,
+                Clock.systemDefaultZone());
+    }
+
+    public OverdueLoanDetector(LoanRepository loanRepository,
+                               ScanWatermarkRepository watermarkRepository,
+                               ApplicationEventPublisher eventPublisher,
+                               PlatformTransactionManager transactionManager,
+                               int loanDays,
+                               int batchSize,
+                               Clock clock) {
+        this.loanRepository = loanRepository;
+        this.watermarkRepository = watermarkRepository;
+        this.eventPublisher = eventPublisher;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.loanDays = loanDays;
+        this.batchSize = batchSize;
+        this.clock = clock;
+    }
+
+    @Scheduled(cron = "${library.overdue.cron:0 0 2 * * *}")
+    public void scheduledScan() {
+        detect();
+    }
+
+    /**
+     * @return quantidade de emprestimos vencidos encontrados nesta execucao
+     */
+    public int detect() {
+        LocalDate cutoff = LocalDate.now(clock).minusDays(loanDays);
+        int found = 0;
+        int batch;
+        do {
+            batch = transactionTemplate.execute(status -> scanBatch(cutoff));
+            found += batch;
+        } while (batch == batchSize);
+        return found;
+    }
+
+    private int scanBatch(LocalDate cutoff) {
+        ScanWatermark watermark = watermarkRepository.findById(WATERMARK)
+                .orElseGet(() -> ScanWatermark.builder().name(WATERMARK).loanDate(START).lastId(0L).build());
+
+        List<Loan> overdue = loanRepository.findOverdueAfter(
+                watermark.getLoanDate(), watermark.getLastId(), cutoff, PageRequest.of(0, batchSize));
+        if (overdue.isEmpty()) {
+            return 0;
+        }
+        for (Loan loan : overdue) {
+            eventPublisher.publishEvent(new OverdueLoanEvent(
+                    loan.getId(), loan.getBook().getId(), loan.getBook().getIsbn(), loan.getCustomer(), loan.getLoanDate()));
+        }
+
+        Loan last = overdue.get(overdue.size() - 1);
+        watermark.setLoanDate(last.getLoanDate());
+        watermark.setLastId(last.getId());
+        watermarkRepository.save(watermark);
+        return overdue.size();
+    }
+}
@@ -0,0 +1,18 @@
+package com.dev.unitests.service.overdue;
+
+import lombok.Value;
+
+import java.time.LocalDate;
+
+/**
+ * Publicado uma unica vez por emprestimo, quando a varredura encontra o emprestimo vencido e ainda aberto.
+ */
+@Value
+public class OverdueLoanEvent {
+
+    Long loanId;
+    Long bookId;
+    String isbn;
+    String customer;
+    LocalDate loanDate;
+}
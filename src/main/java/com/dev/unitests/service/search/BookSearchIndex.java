@@ -0,0 +1,247 @@
+package com.dev.unitests.service.search;
+
+import com.dev.unitests.model.entity.Book;
+import org.springframework.stereotype.Component;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Indice invertido em memoria sobre titulo e autor dos livros. Os termos sao separados por
+ * caracteres que nao sao letras ou digitos, em minusculas e sem acentos.
+ * <p>
+ * A pontuacao soma, para cada termo encontrado, o idf do termo com peso 2 no titulo e 1 no autor.
+ */
+@Component
+public class BookSearchIndex {
+
+    private static final double TITLE_WEIGHT = 2.0;
+    private static final double AUTHOR_WEIGHT = 1.0;
+
+    //o limit vem direto da requisicao; acima disso a busca devolve so os MAX_LIMIT mais relevantes
+    static final int MAX_LIMIT = 100;
+
+    private final Map<String, LongPostings> titlePostings = new HashMap<>();
+    private final Map<String, LongPostings> authorPostings = new HashMap<>();
+    private final Map<Long, Document> documents = new HashMap<>();
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    public void index(Book book) {
+        if (book == null || book.getId() == null) {
+            return;
+        }
+        Document document = new Document(tokenize(book.getTitle()), tokenize(book.getAuthor()));
+        lock.writeLock().lock();
+        try {
+            removeDocument(book.getId());
+            addDocument(book.getId(), document);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Troca os termos apenas dos campos informados (nao nulos) de um livro ja indexado.
+     */
+    public void update(Long id, String title, String author) {
+        if (id == null) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            Document current = documents.get(id);
+            if (current == null) {
+                return;
+            }
+            Document document = new Document(
+                    title == null ? current.titleTerms : tokenize(title),
+                    author == null ? current.authorTerms : tokenize(author));
+            removeDocument(id);
+            addDocument(id, document);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(Long id) {
+        if (id == null) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            removeDocument(id);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return documents.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Retorna os ids dos livros encontrados, do mais relevante para o menos relevante (no maximo MAX_LIMIT).
+     */
+    public List<Long> search(String query, SearchOperator operator, int limit) {
+        limit = Math.min(limit, MAX_LIMIT);
+        List<String> terms = new ArrayList<>(tokenize(query));
+        if (terms.isEmpty() || limit <= 0) {
+            return Collections.emptyList();
+        }
+
+        lock.readLock().lock();
+        try {
+            long[] candidates = null;
+            for (String term : terms) {
+                long[] termIds = LongPostings.union(ids(titlePostings, term), ids(authorPostings, term));
+                if (candidates == null) {
+                    candidates = termIds;
+                } else if (operator == SearchOperator.AND) {
+                    candidates = LongPostings.intersection(candidates, termIds);
+                } else {
+                    candidates = LongPostings.union(candidates, termIds);
+                }
+                if (operator == SearchOperator.AND && candidates.length == 0) {
+                    return Collections.emptyList();
+                }
+            }
+
+            double[] titleIdf = new double[terms.size()];
+            double[] authorIdf = new double[terms.size()];
+            LongPostings[] titleTerm = new LongPostings[terms.size()];
+            LongPostings[] authorTerm = new LongPostings[terms.size()];
+            for (int i = 0; i < terms.size(); i++) {
+                titleTerm[i] = titlePostings.get(terms.get(i));
+                authorTerm[i] = authorPostings.get(terms.get(i));
+                titleIdf[i] = TITLE_WEIGHT * idf(titleTerm[i]);
+                authorIdf[i] = AUTHOR_WEIGHT * idf(authorTerm[i]);
+            }
+
+            PriorityQueue<Hit> top = new PriorityQueue<>(Math.min(limit, candidates.length) + 1);
+            for (long id : candidates) {
+                double score = 0;
+                for (int i = 0; i < terms.size(); i++) {
+                    if (titleTerm[i] != null && titleTerm[i].contains(id)) {
+                        score += titleIdf[i];
+                    }
+                    if (authorTerm[i] != null && authorTerm[i].contains(id)) {
+                        score += authorIdf[i];
+                    }
+                }
+                top.add(new Hit(id, score));
+                if (top.size() > limit) {
+                    top.poll();
+                }
+            }
+
+            List<Long> result = new ArrayList<>(top.size());
+            while (!top.isEmpty()) {
+                result.add(top.poll().id);
+            }
+            Collections.reverse(result);
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    static Set<String> tokenize(String text) {
+        if (text == null) {
+            return Collections.emptySet();
+        }
+        String folded = Normalizer.normalize(text, Normalizer.Form.NFD)
+                .replaceAll("\\p{M}", "")
+                .toLowerCase(Locale.ROOT);
+        Set<String> terms = new LinkedHashSet<>();
+        int start = -1;
+        for (int i = 0; i <= folded.length(); i++) {
+            boolean letterOrDigit = i < folded.length() && Character.isLetterOrDigit(folded.charAt(i));
+            if (letterOrDigit && start < 0) {
+                start = i;
+            } else if (!letterOrDigit && start >= 0) {
+                terms.add(folded.substring(start, i));
+                start = -1;
+            }
+        }
+        return terms;
+    }
+
+    private double idf(LongPostings postings) {
+        int df = postings == null ? 0 : postings.size();
+        return Math.log(1.0 + (double) documents.size() / (1 + df));
+    }
+
+    private static long[] ids(Map<String, LongPostings> postings, String term) {
+        LongPostings termPostings = postings.get(term);
+        return termPostings == null ? new long[0] : termPostings.toArray();
+    }
+
+    private void addDocument(long id, Document document) {
+        document.titleTerms.forEach(term -> titlePostings.computeIfAbsent(term, t -> new LongPostings()).add(id));
+        document.authorTerms.forEach(term -> authorPostings.computeIfAbsent(term, t -> new LongPostings()).add(id));
+        documents.put(id, document);
+    }
+
+    private void removeDocument(long id) {
+        Document previous = documents.remove(id);
+        if (previous == null) {
+            return;
+        }
+        previous.titleTerms.forEach(term -> removePosting(titlePostings, term, id));
+        previous.authorTerms.forEach(term -> removePosting(authorPostings, term, id));
+    }
+
+    private static void removePosting(Map<String, LongPostings> postings, String term, long id) {
+        LongPostings termPostings = postings.get(term);
+        if (termPostings == null) {
+            return;
+        }
+        termPostings.remove(id);
+        if (termPostings.isEmpty()) {
+            postings.remove(term);
+        }
+    }
+
+    private static final class Document {
+        private final Set<String> titleTerms;
+        private final Set<String> authorTerms;
+
+        private Document(Set<String> titleTerms, Set<String> authorTerms) {
+            this.titleTerms = titleTerms;
+            this.authorTerms = authorTerms;
+        }
+    }
+
+    private static final class Hit implements Comparable<Hit> {
+        private final long id;
+        private final double score;
+
+        private Hit(long id, double score) {
+            this.id = id;
+            this.score = score;
+        }
+
+        //menor pontuacao primeiro; no empate o maior id sai antes, mantendo os mais antigos
+        @Override
+        public int compareTo(Hit other) {
+            int byScore = Double.compare(score, other.score);
+            return byScore != 0 ? byScore : Long.compare(other.id, id);
+        }
+    }
+}
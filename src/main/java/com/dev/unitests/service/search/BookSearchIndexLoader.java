@@ -0,0 +1,35 @@
+package com.dev.unitests.service.search;
+
+import com.dev.unitests.model.entity.Book;
+import com.dev.unitests.repository.BookRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.data.domain.Slice;
+import org.springframework.stereotype.Component;
+
+/**
+ * Carrega o indice de busca a partir do banco ao subir a aplicacao, percorrendo os livros pelo id.
+ */
+@Component
+@RequiredArgsConstructor
+public class BookSearchIndexLoader implements ApplicationRunner {
+
+    private static final int PAGE_SIZE = 1000;
+
+    private final BookRepository repository;
+    private final BookSearchIndex index;
+
+    @Override
+    public void run(ApplicationArguments args) {
+        long afterId = 0L;
+        Slice<Book> slice;
+        do {
+            slice = repository.searchAfter(new Book(), afterId, PAGE_SIZE);
+            for (Book book : slice.getContent()) {
+                index.index(book);
+                afterId = book.getId();
+            }
+        } while (slice.hasNext());
+    }
+}
@@ -0,0 +1,6 @@
+package com.dev.unitests.service.search;
+
+public enum SearchOperator {
+    AND,
+    OR
+}
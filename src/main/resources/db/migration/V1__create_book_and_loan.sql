@@ -0,0 +1,22 @@
+create sequence book_seq start with 1 increment by 50;
+create sequence loan_seq start with 1 increment by 50;
+
+create table book (
+    id bigint not null,
+    title varchar(255),
+    author varchar(255),
+    isbn varchar(255),
+    primary key (id)
+);
+
+create table loan (
+    id bigint not null,
+    customer varchar(255),
+    id_book bigint,
+    loan_date date,
+    returned boolean default false not null,
+    primary key (id),
+    constraint fk_loan_book foreign key (id_book) references book (id)
+);
+
+create index idx_loan_book_returned on loan (id_book, returned);
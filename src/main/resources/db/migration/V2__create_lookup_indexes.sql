@@ -0,0 +1,7 @@
+-- findByIsbn / existsByIsbn e garantia de isbn unico (fecha a corrida do check-then-insert em save)
+create unique index ux_book_isbn on book (isbn);
+
+-- ramo customer de findByBookIsbnOrCustomer
+create index idx_loan_customer on loan (customer);
+
+-- o join por id_book usa idx_loan_book_returned, que tem id_book como primeira coluna
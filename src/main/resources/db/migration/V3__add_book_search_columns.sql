@@ -0,0 +1,11 @@
+-- copias em minusculas de title, author e isbn: a busca por prefixo vira um intervalo
+-- (col >= ? and col < ?) atendido pelos indices, no lugar de lower(col) like lower(?) || '%'
+alter table book add column title_search varchar(255);
+alter table book add column author_search varchar(255);
+alter table book add column isbn_search varchar(255);
+
+update book set title_search = lower(title), author_search = lower(author), isbn_search = lower(isbn);
+
+create index idx_book_title_search on book (title_search);
+create index idx_book_author_search on book (author_search);
+create index idx_book_isbn_search on book (isbn_search);
@@ -0,0 +1,11 @@
+-- open_book_id = id_book enquanto o emprestimo esta aberto e null depois da devolucao.
+-- O indice unico permite um unico emprestimo aberto por livro (nulls nao conflitam) e fecha
+-- a corrida do check-then-insert em LoanServiceImpl.save sem lock nem transacao serializavel
+alter table loan add column open_book_id bigint;
+
+-- se a corrida ja tiver gerado emprestimos abertos duplicados, so o mais recente fica marcado
+update loan l set open_book_id = id_book
+where returned = false
+  and not exists (select 1 from loan o where o.id_book = l.id_book and o.returned = false and o.id > l.id);
+
+create unique index ux_loan_open_book on loan (open_book_id);
@@ -0,0 +1,5 @@
+-- emprestimo aberto do livro (null = disponivel): o emprestimo e a devolucao fazem um update
+-- condicional nesta coluna e a busca por livros disponiveis nao precisa consultar loan
+alter table book add column current_loan_id bigint;
+
+update book b set current_loan_id = (select l.id from loan l where l.open_book_id = b.id);
@@ -0,0 +1,11 @@
+-- emprestimos em aberto por data: atende o scan incremental de atrasados e GET /api/loans/overdue
+-- com um intervalo no indice (returned = false and loan_date between ...) ja ordenado por loan_date, id
+create index idx_loan_returned_date on loan (returned, loan_date, id);
+
+-- ultimo (loan_date, id) processado por cada varredura incremental
+create table scan_watermark (
+    name varchar(100) not null,
+    loan_date date not null,
+    last_id bigint not null,
+    primary key (name)
+);
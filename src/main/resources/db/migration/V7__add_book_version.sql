@@ -0,0 +1,2 @@
+-- versao para controle otimista: o update parcial de livro compara e incrementa esta coluna
+alter table book add column version bigint default 0 not null;
@@ -0,0 +1,2 @@
+-- versao do emprestimo, base das ETags das listagens junto com a versao do livro
+alter table loan add column version bigint default 0 not null;
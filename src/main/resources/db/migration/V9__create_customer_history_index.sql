@@ -0,0 +1,6 @@
+-- historico do cliente: igualdade em customer e ordem por (loan_date, id); returned no fim
+-- deixa o resumo (total e abertos) ser respondido so pelo indice
+create index idx_loan_customer_history on loan (customer, loan_date, id, returned);
+
+-- prefixo do indice acima
+drop index idx_loan_customer;
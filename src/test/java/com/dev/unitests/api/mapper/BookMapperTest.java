@@ -0,0 +1,52 @@
+package com.dev.unitests.api.mapper;
+
+import com.dev.unitests.api.dto.BookDTO;
+import com.dev.unitests.model.entity.Book;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.modelmapper.ModelMapper;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+public class BookMapperTest {
+
+    BookMapper bookMapper = new BookMapper();
+
+    ModelMapper modelMapper = new ModelMapper();
+
+    ObjectMapper objectMapper = new ObjectMapper();
+
+    @Test
+    @DisplayName("Deve gerar o mesmo json que o ModelMapper ao converter um livro")
+    public void toDTOSameJsonAsModelMapperTest() throws Exception {
+        Book book = Book.builder().id(1L).title("As aventuras").author("Artur").isbn("123").build();
+
+        assertEquals(objectMapper.writeValueAsString(modelMapper.map(book, BookDTO.class)),
+                objectMapper.writeValueAsString(bookMapper.toDTO(book)));
+    }
+
+    @Test
+    @DisplayName("Deve converter o dto em entidade igual ao ModelMapper")
+    public void toEntitySameAsModelMapperTest() {
+        BookDTO dto = BookDTO.builder().title("As aventuras").author("Artur").isbn("123").build();
+
+        assertEquals(modelMapper.map(dto, Book.class), bookMapper.toEntity(dto));
+    }
+
+    @Test
+    @DisplayName("Deve manter nulos os campos de filtro nao informados")
+    public void partialFilterTest() {
+        BookDTO dto = BookDTO.builder().title("As").build();
+
+        assertEquals(modelMapper.map(dto, Book.class), bookMapper.toEntity(dto));
+    }
+
+    @Test
+    @DisplayName("Deve retornar nulo ao converter valores nulos")
+    public void nullValuesTest() {
+        assertNull(bookMapper.toDTO(null));
+        assertNull(bookMapper.toEntity(null));
+    }
+}
@@ -0,0 +1,41 @@
+package com.dev.unitests.api.mapper;
+
+import com.dev.unitests.api.dto.BookDTO;
+import com.dev.unitests.api.dto.LoanDTO;
+import com.dev.unitests.model.entity.Book;
+import com.dev.unitests.model.entity.Loan;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.modelmapper.ModelMapper;
+
+import java.time.LocalDate;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+public class LoanMapperTest {
+
+    LoanMapper loanMapper = new LoanMapper(new BookMapper());
+
+    @Test
+    @DisplayName("Deve gerar o mesmo json que o ModelMapper ao converter um emprestimo")
+    public void sameJsonAsModelMapperTest() throws Exception {
+        Book book = Book.builder().id(1L).title("As aventuras").author("Artur").isbn("123").build();
+        Loan loan = Loan.builder().id(2L).customer("Fulano").book(book).loanDate(LocalDate.now()).returned(true).build();
+
+        ModelMapper modelMapper = new ModelMapper();
+        LoanDTO expected = modelMapper.map(loan, LoanDTO.class);
+        expected.setBook(modelMapper.map(book, BookDTO.class));
+
+        ObjectMapper objectMapper = new ObjectMapper();
+        assertEquals(objectMapper.writeValueAsString(expected),
+                objectMapper.writeValueAsString(loanMapper.toDTO(loan)));
+    }
+
+    @Test
+    @DisplayName("Deve retornar nulo ao converter um emprestimo nulo")
+    public void nullLoanTest() {
+        assertNull(loanMapper.toDTO(null));
+    }
+}
@@ -0,0 +1,35 @@
+package com.dev.unitests.api.reader;
+
+import com.dev.unitests.api.dto.BookDTO;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class BookCsvReaderTest {
+
+    @Test
+    @DisplayName("Deve ler os livros do csv pelas colunas do cabecalho")
+    public void readCsvTest() {
+        BookCsvReader reader = reader("isbn,title,author\n001,As aventuras,Artur\n\n002,\"Contos, \"\"vol\"\" 1\",Fulano\n");
+
+        assertTrue(reader.hasNext());
+        assertEquals(BookDTO.builder().isbn("001").title("As aventuras").author("Artur").build(), reader.next());
+        assertEquals(BookDTO.builder().isbn("002").title("Contos, \"vol\" 1").author("Fulano").build(), reader.next());
+        assertFalse(reader.hasNext());
+    }
+
+    @Test
+    @DisplayName("Deve lancar erro quando faltar coluna no cabecalho")
+    public void missingColumnTest() {
+        assertThrows(ResponseStatusException.class, () -> reader("title,author\nAs aventuras,Artur\n"));
+    }
+
+    private BookCsvReader reader(String csv) {
+        return new BookCsvReader(new ByteArrayInputStream(csv.getBytes(StandardCharsets.UTF_8)));
+    }
+}
@@ -0,0 +1,64 @@
+package com.dev.unitests.api.reader;
+
+import com.dev.unitests.api.dto.BookDTO;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class BookJsonReaderTest {
+
+    @Test
+    @DisplayName("Deve ler os livros do array json um por vez")
+    public void readJsonTest() {
+        BookJsonReader reader = reader("[{\"title\":\"As aventuras\",\"author\":\"Artur\",\"isbn\":\"001\"}," +
+                "{\"title\":\"Contos\",\"author\":\"Fulano\",\"isbn\":\"002\"}]");
+
+        assertEquals("001", reader.next().getIsbn());
+        assertTrue(reader.hasNext());
+        assertEquals(BookDTO.builder().title("Contos").author("Fulano").isbn("002").build(), reader.next());
+        assertFalse(reader.hasNext());
+    }
+
+    @Test
+    @DisplayName("Deve lancar erro quando o corpo nao for um array")
+    public void notArrayTest() {
+        assertThrows(ResponseStatusException.class, () -> reader("{\"isbn\":\"001\"}"));
+    }
+
+    @Test
+    @DisplayName("Deve lancar erro em elemento que nao seja objeto")
+    public void notObjectElementTest() {
+        BookJsonReader reader = reader("[{\"isbn\":\"001\"}, 42, {\"isbn\":\"002\"}]");
+
+        assertEquals("001", reader.next().getIsbn());
+        assertThrows(ResponseStatusException.class, reader::hasNext);
+    }
+
+    @Test
+    @DisplayName("Deve lancar erro quando o array estiver truncado")
+    public void truncatedArrayTest() {
+        BookJsonReader reader = reader("[{\"isbn\":\"001\"}");
+
+        assertThrows(ResponseStatusException.class, () -> {
+            while (reader.hasNext()) {
+                reader.next();
+            }
+        });
+    }
+
+    @Test
+    @DisplayName("Nao deve ler livros de um array vazio")
+    public void emptyArrayTest() {
+        assertFalse(reader("[]").hasNext());
+    }
+
+    private BookJsonReader reader(String json) {
+        return new BookJsonReader(new ObjectMapper(), new ByteArrayInputStream(json.getBytes(StandardCharsets.UTF_8)));
+    }
+}
@@ -0,0 +1,130 @@
+package com.dev.unitests.api.resource;
+
+import com.dev.unitests.api.dto.BookDTO;
+import com.dev.unitests.config.JpaExecutorConfiguration;
+import com.dev.unitests.model.entity.Book;
+import com.dev.unitests.service.BookImportService;
+import com.dev.unitests.service.BookService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.BDDMockito;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
+
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+@ExtendWith(SpringExtension.class)
+@ActiveProfiles("test")
+@WebMvcTest(controllers = {AsyncBookController.class, BookController.class},
+        properties = {"library.jpa-executor.pool-size=1", "library.jpa-executor.queue-capacity=0"})
+@Import(JpaExecutorConfiguration.class)
+@AutoConfigureMockMvc
+public class AsyncBookControllerTest {
+
+    static String ASYNC_BOOK_API = "/api/async/books";
+
+    @Autowired
+    MockMvc mvc;
+
+    @MockBean
+    BookService service;
+
+    @MockBean
+    BookImportService importService;
+
+    @Test
+    @DisplayName("Deve criar um livro de forma assincrona")
+    public void createBookTest() throws Exception {
+        BDDMockito.given(service.save(any(Book.class))).willReturn(getBook());
+        BookDTO dto = BookDTO.builder().author("Artur").title("As aventuras").isbn("001").build();
+
+        MvcResult result = mvc.perform(MockMvcRequestBuilders.post(ASYNC_BOOK_API)
+                .contentType(MediaType.APPLICATION_JSON)
+                .accept(MediaType.APPLICATION_JSON)
+                .content(new ObjectMapper().writeValueAsString(dto)))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mvc.perform(MockMvcRequestBuilders.asyncDispatch(result))
+                .andExpect(status().isCreated())
+                .andExpect(jsonPath("id").value(1L))
+                .andExpect(jsonPath("isbn").value("001"));
+    }
+
+    @Test
+    @DisplayName("Deve obter informações de um livro de forma assincrona")
+    public void getBookDetailsTest() throws Exception {
+        BDDMockito.given(service.getById(1L)).willReturn(Optional.of(getBook()));
+
+        MvcResult result = mvc.perform(MockMvcRequestBuilders.get(ASYNC_BOOK_API.concat("/1"))
+                .accept(MediaType.APPLICATION_JSON))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mvc.perform(MockMvcRequestBuilders.asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("title").value("As aventuras"));
+    }
+
+    @Test
+    @DisplayName("Deve retornar not found de forma assincrona quando o livro nao existir")
+    public void bookNotFoundTest() throws Exception {
+        BDDMockito.given(service.getById(1L)).willReturn(Optional.empty());
+
+        MvcResult result = mvc.perform(MockMvcRequestBuilders.get(ASYNC_BOOK_API.concat("/1"))
+                .accept(MediaType.APPLICATION_JSON))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mvc.perform(MockMvcRequestBuilders.asyncDispatch(result))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    @DisplayName("Deve retornar 503 quando o executor estiver sem capacidade")
+    public void executorSaturatedTest() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        BDDMockito.given(service.getById(1L)).willAnswer(invocation -> {
+            started.countDown();
+            release.await();
+            return Optional.of(getBook());
+        });
+
+        MvcResult busy = mvc.perform(MockMvcRequestBuilders.get(ASYNC_BOOK_API.concat("/1"))
+                .accept(MediaType.APPLICATION_JSON))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        started.await();
+
+        mvc.perform(MockMvcRequestBuilders.get(ASYNC_BOOK_API.concat("/1"))
+                .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isServiceUnavailable())
+                .andExpect(header().string(HttpHeaders.RETRY_AFTER, "1"))
+                .andExpect(jsonPath("errors[0]").value("Server busy, try again later"));
+
+        release.countDown();
+        mvc.perform(MockMvcRequestBuilders.asyncDispatch(busy))
+                .andExpect(status().isOk());
+    }
+
+    private Book getBook() {
+        return Book.builder().id(1L).author("Artur").title("As aventuras").isbn("001").build();
+    }
+}
@@ -1,9 +1,13 @@
 package com.dev.unitests.api.resource;
 
 import com.dev.unitests.api.dto.BookDTO;
+import com.dev.unitests.api.dto.BookImportResultDTO;
 import com.dev.unitests.exception.BusinessException;
+import com.dev.unitests.exception.PreconditionFailedException;
 import com.dev.unitests.model.entity.Book;
+import com.dev.unitests.service.BookImportService;
 import com.dev.unitests.service.BookService;
+import com.dev.unitests.service.search.SearchOperator;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import org.hamcrest.Matchers;
 import org.junit.jupiter.api.DisplayName;
@@ -15,9 +19,12 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.dao.OptimisticLockingFailureException;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.SliceImpl;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.context.junit.jupiter.SpringExtension;
@@ -26,11 +33,16 @@ import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilde
 import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
 
 import java.util.Arrays;
+import java.util.Iterator;
 import java.util.Optional;
 
 import static org.hamcrest.Matchers.hasSize;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
 import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
@@ -48,6 +60,9 @@ public class BookControllerTest {
     @MockBean
     BookService service;
 
+    @MockBean
+    BookImportService importService;
+
     @Test
     @DisplayName("Deve criar um livro com sucesso.")
     public void createBookTest() throws Exception {
@@ -138,7 +153,68 @@ public class BookControllerTest {
                 .andExpect(jsonPath("id").value(id))
                 .andExpect(jsonPath("title").value(createNewBook().getTitle()))
                 .andExpect(jsonPath("author").value(createNewBook().getAuthor()))
-                .andExpect(jsonPath("isbn").value(createNewBook().getIsbn()));
+                .andExpect(jsonPath("isbn").value(createNewBook().getIsbn()))
+                .andExpect(header().string(HttpHeaders.ETAG, "\"0\""));
+    }
+
+    @Test
+    @DisplayName("Deve retornar 304 sem carregar o livro quando a versao nao mudou")
+    public void getBookNotModifiedTest() throws Exception {
+        BDDMockito.given(service.getVersion(1L)).willReturn(Optional.of(4L));
+
+        mvc.perform(MockMvcRequestBuilders.get(BOOK_API.concat("/1"))
+                .header(HttpHeaders.IF_NONE_MATCH, "\"4\"")
+                .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isNotModified())
+                .andExpect(header().string(HttpHeaders.ETAG, "\"4\""))
+                .andExpect(content().string(""));
+
+        Mockito.verify(service, Mockito.never()).getById(anyLong());
+    }
+
+    @Test
+    @DisplayName("Deve retornar o livro quando a versao do If-None-Match estiver desatualizada")
+    public void getBookModifiedTest() throws Exception {
+        Book book = getBook();
+        book.setVersion(5L);
+        BDDMockito.given(service.getVersion(1L)).willReturn(Optional.of(5L));
+        BDDMockito.given(service.getById(1L)).willReturn(Optional.of(book));
+
+        mvc.perform(MockMvcRequestBuilders.get(BOOK_API.concat("/1"))
+                .header(HttpHeaders.IF_NONE_MATCH, "\"4\"")
+                .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, "\"5\""))
+                .andExpect(jsonPath("id").value(1L));
+    }
+
+    @Test
+    @DisplayName("Deve retornar 304 na listagem quando nenhum livro da pagina mudou")
+    public void filterBookNotModifiedTest() throws Exception {
+        BDDMockito.given(service.find(any(Book.class), any(Pageable.class)))
+                .willReturn(new PageImpl<>(Arrays.asList(getBook()), PageRequest.of(0, 100), 1));
+
+        String etag = mvc.perform(MockMvcRequestBuilders.get(BOOK_API.concat("?title=As&page=0&size=100"))
+                .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+
+        mvc.perform(MockMvcRequestBuilders.get(BOOK_API.concat("?title=As&page=0&size=100"))
+                .header(HttpHeaders.IF_NONE_MATCH, etag)
+                .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isNotModified())
+                .andExpect(content().string(""));
+
+        Book changed = getBook();
+        changed.setVersion(1L);
+        BDDMockito.given(service.find(any(Book.class), any(Pageable.class)))
+                .willReturn(new PageImpl<>(Arrays.asList(changed), PageRequest.of(0, 100), 1));
+
+        mvc.perform(MockMvcRequestBuilders.get(BOOK_API.concat("?title=As&page=0&size=100"))
+                .header(HttpHeaders.IF_NONE_MATCH, etag)
+                .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("content", hasSize(1)));
     }
 
     @Test
@@ -193,13 +269,12 @@ public class BookControllerTest {
         Long id = 1L;
         String json = new ObjectMapper().writeValueAsString(createNewBook());
 
-        Book updatingBook = Book.builder().id(1L).title("some title").author("some author").isbn("321").build();
-
-        BDDMockito.given(service.getById(id)).willReturn(Optional.of(updatingBook));
+        Book updatedBook = Book.builder().id(1L).title(createNewBook().getTitle()).author(createNewBook().getAuthor())
+                .isbn("321").version(1L).build();
 
-        Book updatedBook = Book.builder().id(id).author("Artur").title("As aventuras").isbn("321").build();
-
-        BDDMockito.given(service.update(updatingBook)).willReturn(updatedBook);
+        BDDMockito.given(service.updatePartial(id, null, createNewBook().getTitle(), createNewBook().getAuthor()))
+                .willReturn(true);
+        BDDMockito.given(service.getById(id)).willReturn(Optional.of(updatedBook));
 
         MockHttpServletRequestBuilder request = MockMvcRequestBuilders
                 .put(BOOK_API.concat("/" + 1))
@@ -221,8 +296,8 @@ public class BookControllerTest {
 
         String json = new ObjectMapper().writeValueAsString(createNewBook());
 
-        BDDMockito.given(service.getById(Mockito.anyLong()))
-                .willReturn(Optional.empty());
+        BDDMockito.given(service.updatePartial(1L, null, createNewBook().getTitle(), createNewBook().getAuthor()))
+                .willReturn(false);
 
         MockHttpServletRequestBuilder request = MockMvcRequestBuilders
                 .put(BOOK_API.concat("/" + 1))
@@ -234,6 +309,105 @@ public class BookControllerTest {
                 .andExpect(status().isNotFound());
     }
 
+    @Test
+    @DisplayName("Deve alterar apenas os campos informados sem carregar o livro")
+    public void patchBookTest() throws Exception {
+        BDDMockito.given(service.updatePartial(1L, 3L, "Novo titulo", null)).willReturn(true);
+
+        mvc.perform(MockMvcRequestBuilders.patch(BOOK_API.concat("/1"))
+                .header(HttpHeaders.IF_MATCH, "\"3\"")
+                .content("{\"title\":\"Novo titulo\"}")
+                .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isNoContent());
+
+        Mockito.verify(service, Mockito.never()).getById(anyLong());
+    }
+
+    @Test
+    @DisplayName("Deve alterar sem verificar a versao com If-Match *")
+    public void patchIfMatchAnyTest() throws Exception {
+        BDDMockito.given(service.updatePartial(1L, null, "Novo titulo", null)).willReturn(true);
+
+        mvc.perform(MockMvcRequestBuilders.patch(BOOK_API.concat("/1"))
+                .header(HttpHeaders.IF_MATCH, "*")
+                .content("{\"title\":\"Novo titulo\"}")
+                .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isNoContent());
+    }
+
+    @Test
+    @DisplayName("Deve atualizar sem verificar a versao com If-Match *")
+    public void updateIfMatchAnyTest() throws Exception {
+        Book updatedBook = Book.builder().id(1L).title(createNewBook().getTitle()).author(createNewBook().getAuthor())
+                .isbn("321").version(6L).build();
+        BDDMockito.given(service.updatePartial(1L, null, createNewBook().getTitle(), createNewBook().getAuthor()))
+                .willReturn(true);
+        BDDMockito.given(service.getById(1L)).willReturn(Optional.of(updatedBook));
+
+        mvc.perform(MockMvcRequestBuilders.put(BOOK_API.concat("/1"))
+                .header(HttpHeaders.IF_MATCH, "*")
+                .content(new ObjectMapper().writeValueAsString(createNewBook()))
+                .accept(MediaType.APPLICATION_JSON)
+                .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("title").value(createNewBook().getTitle()));
+    }
+
+    @Test
+    @DisplayName("Deve retornar 404 ao alterar parcialmente um livro inexistente")
+    public void patchInexistentBookTest() throws Exception {
+        BDDMockito.given(service.updatePartial(1L, null, "Novo titulo", null)).willReturn(false);
+
+        mvc.perform(MockMvcRequestBuilders.patch(BOOK_API.concat("/1"))
+                .content("{\"title\":\"Novo titulo\"}")
+                .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    @DisplayName("Deve retornar 412 quando a versao do If-Match nao for a atual")
+    public void patchStaleVersionTest() throws Exception {
+        BDDMockito.given(service.updatePartial(1L, 2L, null, "Ciclano"))
+                .willThrow(new PreconditionFailedException("Book 1 was modified by another request"));
+
+        mvc.perform(MockMvcRequestBuilders.patch(BOOK_API.concat("/1"))
+                .header(HttpHeaders.IF_MATCH, "W/\"2\"")
+                .content("{\"author\":\"Ciclano\"}")
+                .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isPreconditionFailed())
+                .andExpect(jsonPath("errors[0]").value("Book 1 was modified by another request"));
+    }
+
+    @Test
+    @DisplayName("Deve atualizar sem verificar a versao quando nao houver If-Match")
+    public void updateWithoutIfMatchTest() throws Exception {
+        BDDMockito.given(service.updatePartial(1L, null, createNewBook().getTitle(), createNewBook().getAuthor()))
+                .willReturn(true);
+        BDDMockito.given(service.getById(1L))
+                .willReturn(Optional.of(Book.builder().id(1L).title(createNewBook().getTitle()).build()));
+
+        mvc.perform(MockMvcRequestBuilders.put(BOOK_API.concat("/1"))
+                .content(new ObjectMapper().writeValueAsString(createNewBook()))
+                .accept(MediaType.APPLICATION_JSON)
+                .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk());
+
+        Mockito.verify(service).updatePartial(1L, null, createNewBook().getTitle(), createNewBook().getAuthor());
+    }
+
+    @Test
+    @DisplayName("Deve retornar 409 em conflito de escrita concorrente")
+    public void updateConflictTest() throws Exception {
+        BDDMockito.given(service.updatePartial(1L, null, createNewBook().getTitle(), createNewBook().getAuthor()))
+                .willThrow(new OptimisticLockingFailureException("Book 1 was modified by another request"));
+
+        mvc.perform(MockMvcRequestBuilders.put(BOOK_API.concat("/1"))
+                .content(new ObjectMapper().writeValueAsString(createNewBook()))
+                .accept(MediaType.APPLICATION_JSON)
+                .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isConflict());
+    }
+
     @Test
     @DisplayName("Deve filtrar livros")
     public void filterBookTest() throws Exception {
@@ -262,6 +436,117 @@ public class BookControllerTest {
                 .andExpect(jsonPath("pageable.pageNumber").value(0));
     }
 
+    @Test
+    @DisplayName("Deve filtrar apenas livros disponiveis")
+    public void filterAvailableBookTest() throws Exception {
+        Book book = getBook();
+        book.setId(1L);
+
+        BDDMockito.given(service.findAvailable(any(Book.class), any(Pageable.class)))
+                .willReturn(new PageImpl<>(Arrays.asList(book), PageRequest.of(0, 10), 1));
+
+        MockHttpServletRequestBuilder request = MockMvcRequestBuilders.get(BOOK_API.concat("?available=true&page=0&size=10"))
+                .accept(MediaType.APPLICATION_JSON);
+
+        mvc.perform(request)
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("content", Matchers.hasSize(1)))
+                .andExpect(jsonPath("content[0].available").value(true));
+
+        Mockito.verify(service, Mockito.never()).find(any(Book.class), any(Pageable.class));
+    }
+
+    @Test
+    @DisplayName("Deve filtrar livros a partir de um id sem contar o total")
+    public void filterBookAfterIdTest() throws Exception {
+        Book book = getBook();
+        book.setId(11L);
+
+        BDDMockito.given(service.findAfter(any(Book.class), eq(10L), anyInt()))
+                .willReturn(new SliceImpl<>(Arrays.asList(book), PageRequest.of(0, 1), true));
+
+        String queryString = String.format("?title=%s&afterId=10&size=1", book.getTitle());
+
+        MockHttpServletRequestBuilder request = MockMvcRequestBuilders.get(BOOK_API.concat(queryString))
+                .accept(MediaType.APPLICATION_JSON);
+
+        mvc.perform(request)
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("content", Matchers.hasSize(1)))
+                .andExpect(jsonPath("content[0].id").value(11L))
+                .andExpect(jsonPath("last").value(false))
+                .andExpect(jsonPath("totalElements").doesNotExist());
+
+        Mockito.verify(service, Mockito.never()).find(any(Book.class), any(Pageable.class));
+    }
+
+    @Test
+    @DisplayName("Deve importar livros de um array json")
+    public void importJsonTest() throws Exception {
+        String json = new ObjectMapper().writeValueAsString(Arrays.asList(createNewBook(), createNewBook()));
+
+        BDDMockito.given(importService.importBooks(any()))
+                .willAnswer(invocation -> {
+                    Iterator<BookDTO> books = invocation.getArgument(0);
+                    long received = 0;
+                    while (books.hasNext()) {
+                        books.next();
+                        received++;
+                    }
+                    return BookImportResultDTO.builder().received(received).imported(1).duplicated(1).build();
+                });
+
+        MockHttpServletRequestBuilder request = MockMvcRequestBuilders
+                .post(BOOK_API.concat("/import"))
+                .contentType(MediaType.APPLICATION_JSON)
+                .accept(MediaType.APPLICATION_JSON)
+                .content(json);
+
+        mvc.perform(request)
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("received").value(2))
+                .andExpect(jsonPath("imported").value(1))
+                .andExpect(jsonPath("duplicated").value(1));
+    }
+
+    @Test
+    @DisplayName("Deve importar livros de um csv")
+    public void importCsvTest() throws Exception {
+        BDDMockito.given(importService.importBooks(any()))
+                .willAnswer(invocation -> {
+                    Iterator<BookDTO> books = invocation.getArgument(0);
+                    BookDTO book = books.next();
+                    return BookImportResultDTO.builder().received(1).imported(book.getIsbn().equals("001") ? 1 : 0).build();
+                });
+
+        MockHttpServletRequestBuilder request = MockMvcRequestBuilders
+                .post(BOOK_API.concat("/import"))
+                .contentType("text/csv")
+                .accept(MediaType.APPLICATION_JSON)
+                .content("title,author,isbn\nAs aventuras,Artur,001\n");
+
+        mvc.perform(request)
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("imported").value(1));
+    }
+
+    @Test
+    @DisplayName("Deve buscar livros por palavras do titulo ou autor")
+    public void searchBookTest() throws Exception {
+        BDDMockito.given(service.search("aventuras artur", SearchOperator.OR, 5))
+                .willReturn(Arrays.asList(getBook()));
+
+        MockHttpServletRequestBuilder request = MockMvcRequestBuilders
+                .get(BOOK_API.concat("/search?q=aventuras artur&operator=OR&limit=5"))
+                .accept(MediaType.APPLICATION_JSON);
+
+        mvc.perform(request)
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(1)))
+                .andExpect(jsonPath("[0].id").value(1L))
+                .andExpect(jsonPath("[0].title").value("As aventuras"));
+    }
+
     private Book getBook() {
         return Book.builder().id(1L).author("Artur").title("As aventuras").isbn("001").build();
     }
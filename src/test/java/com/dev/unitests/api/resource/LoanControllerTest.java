@@ -1,13 +1,18 @@
 package com.dev.unitests.api.resource;
 
+import com.dev.unitests.api.dto.CustomerLoanSummaryDTO;
+import com.dev.unitests.api.dto.LoanBatchResultDTO;
 import com.dev.unitests.api.dto.LoanDTO;
 import com.dev.unitests.api.dto.LoanFilterDTO;
+import com.dev.unitests.api.dto.LoanReturnDTO;
+import com.dev.unitests.api.dto.LoanReturnResultDTO;
 import com.dev.unitests.api.dto.ReturnedLoanDTO;
 import com.dev.unitests.exception.BusinessException;
 import com.dev.unitests.model.entity.Book;
 import com.dev.unitests.model.entity.Loan;
 import com.dev.unitests.service.BookService;
 import com.dev.unitests.service.LoanService;
+import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import org.hamcrest.Matchers;
 import org.junit.jupiter.api.DisplayName;
@@ -22,6 +27,8 @@ import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.SliceImpl;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.context.junit.jupiter.SpringExtension;
@@ -33,9 +40,12 @@ import java.time.LocalDate;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.Optional;
+import java.util.function.Consumer;
 
 import static com.dev.unitests.service.LoanServiceTest.createLoan;
 import static org.hamcrest.Matchers.hasSize;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.ArgumentMatchers.anyLong;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.patch;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
@@ -129,6 +139,27 @@ class LoanControllerTest {
                 .andExpect(jsonPath("errors[0]").value("Book already loaned"));
     }
 
+    @Test
+    @DisplayName("Deve realizar emprestimos em lote")
+    void createLoanBatchTest() throws Exception {
+        String json = new ObjectMapper().writeValueAsString(Arrays.asList(getLoanDTO(), getLoanDTO()));
+
+        BDDMockito.given(loanService.saveBatch(Mockito.anyList())).willReturn(Arrays.asList(
+                LoanBatchResultDTO.builder().isbn("123").customer("Gabi").id(1L).build(),
+                LoanBatchResultDTO.builder().isbn("123").customer("Gabi").error("Book already loaned").build()));
+
+        MockHttpServletRequestBuilder request = MockMvcRequestBuilders.post(LOAN_API.concat("/batch"))
+                .accept(MediaType.APPLICATION_JSON)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(json);
+
+        mockMvc.perform(request)
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(2)))
+                .andExpect(jsonPath("[0].id").value(1L))
+                .andExpect(jsonPath("[1].error").value("Book already loaned"));
+    }
+
     @Test
     @DisplayName("Deve retornar um livro")
     void returnedBookTest() throws Exception {
@@ -193,7 +224,180 @@ class LoanControllerTest {
                 .andExpect(jsonPath("pageable.pageNumber").value(0));
     }
 
+    @Test
+    @DisplayName("Deve retornar 304 na listagem de emprestimos quando nem emprestimos nem livros mudaram")
+    void filterLoanNotModifiedTest() throws Exception {
+        Loan loan = createLoan();
+        loan.setId(1L);
+        BDDMockito.given(loanService.find(Mockito.any(LoanFilterDTO.class), Mockito.any(Pageable.class)))
+                .willReturn(new PageImpl<>(Collections.singletonList(loan), PageRequest.of(0, 10), 1));
+
+        String etag = mockMvc.perform(MockMvcRequestBuilders.get(LOAN_API.concat("?customer=Fulano&page=0&size=10")))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+
+        mockMvc.perform(MockMvcRequestBuilders.get(LOAN_API.concat("?customer=Fulano&page=0&size=10"))
+                .header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isNotModified())
+                .andExpect(content().string(""));
+
+        //o livro do emprestimo mudou (ex.: titulo), o que muda o LoanDTO
+        loan.getBook().setVersion(1L);
+        mockMvc.perform(MockMvcRequestBuilders.get(LOAN_API.concat("?customer=Fulano&page=0&size=10"))
+                .header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("content", hasSize(1)));
+    }
+
+    @Test
+    @DisplayName("Deve listar o historico do cliente a partir do cursor informado")
+    void findCustomerHistoryTest() throws Exception {
+        Loan loan = createLoan();
+        loan.setId(3L);
+        BDDMockito.given(loanService.findCustomerHistory("Fulano", LocalDate.of(2020, 1, 10), 7L, 5))
+                .willReturn(new SliceImpl<>(Collections.singletonList(loan), PageRequest.of(0, 5), true));
+
+        mockMvc.perform(MockMvcRequestBuilders.get(LOAN_API.concat("/customers/Fulano?beforeDate=2020-01-10&beforeId=7&size=5"))
+                .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("content", hasSize(1)))
+                .andExpect(jsonPath("content[0].id").value(3L))
+                .andExpect(jsonPath("content[0].loanDate").value(loan.getLoanDate().toString()))
+                .andExpect(jsonPath("last").value(false));
+    }
+
+    @Test
+    @DisplayName("Deve recusar o cursor do historico com beforeId sem beforeDate")
+    void findCustomerHistoryWithoutBeforeDateTest() throws Exception {
+        mockMvc.perform(MockMvcRequestBuilders.get(LOAN_API.concat("/customers/Fulano?beforeId=7&size=5"))
+                .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isBadRequest());
+
+        Mockito.verify(loanService, Mockito.never()).findCustomerHistory(Mockito.anyString(), Mockito.any(), Mockito.any(), Mockito.anyInt());
+    }
+
+    @Test
+    @DisplayName("Deve obter o resumo de emprestimos do cliente")
+    void getCustomerSummaryTest() throws Exception {
+        BDDMockito.given(loanService.getCustomerSummary("Fulano"))
+                .willReturn(CustomerLoanSummaryDTO.builder().customer("Fulano").totalLoans(4).openLoans(1).build());
+
+        mockMvc.perform(MockMvcRequestBuilders.get(LOAN_API.concat("/customers/Fulano/summary"))
+                .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("totalLoans").value(4))
+                .andExpect(jsonPath("openLoans").value(1));
+    }
+
+    @Test
+    @DisplayName("Deve filtrar emprestimos a partir de um id sem contar o total")
+    void filterLoanAfterIdTest() throws Exception {
+        Loan loan = createLoan();
+        loan.setId(6L);
+
+        BDDMockito.given(loanService.findAfter(Mockito.any(LoanFilterDTO.class), Mockito.eq(5L), Mockito.eq(10)))
+                .willReturn(new SliceImpl<>(Collections.singletonList(loan), PageRequest.of(0, 10), false));
+
+        String queryString = String.format("?customer=%s&afterId=5&size=10", loan.getCustomer());
+
+        MockHttpServletRequestBuilder request = MockMvcRequestBuilders
+                .get(LOAN_API.concat(queryString))
+                .accept(MediaType.APPLICATION_JSON);
+
+        mockMvc.perform(request)
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("content", Matchers.hasSize(1)))
+                .andExpect(jsonPath("content[0].id").value(6L))
+                .andExpect(jsonPath("last").value(true))
+                .andExpect(jsonPath("totalElements").doesNotExist());
+    }
+
     private LoanDTO getLoanDTO() {
         return LoanDTO.builder().isbn("123").customer("Gabi").build();
     }
+
+    @Test
+    @DisplayName("Deve exportar os emprestimos em ndjson, um por linha")
+    void exportNdjsonTest() throws Exception {
+        givenExportedLoans();
+
+        String body = mockMvc.perform(MockMvcRequestBuilders.get(LOAN_API.concat("/export"))
+                .accept("application/x-ndjson"))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType("application/x-ndjson"))
+                .andReturn().getResponse().getContentAsString();
+
+        assertEquals("{\"id\":1,\"customer\":\"Gabi\",\"loanDate\":\"2020-01-01\",\"returned\":false," +
+                "\"book\":{\"id\":1,\"isbn\":\"123\",\"title\":\"Aventuras, As\",\"author\":\"Artur\"}}\n" +
+                "{\"id\":2,\"customer\":\"Fulano\",\"loanDate\":\"2020-01-02\",\"returned\":true," +
+                "\"book\":{\"id\":1,\"isbn\":\"123\",\"title\":\"Aventuras, As\",\"author\":\"Artur\"}}\n", body);
+    }
+
+    @Test
+    @DisplayName("Deve exportar os emprestimos em csv com cabecalho")
+    void exportCsvTest() throws Exception {
+        givenExportedLoans();
+
+        String body = mockMvc.perform(MockMvcRequestBuilders.get(LOAN_API.concat("/export"))
+                .accept("text/csv"))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"loans.csv\""))
+                .andReturn().getResponse().getContentAsString();
+
+        String[] lines = body.split("\n");
+        assertEquals(3, lines.length);
+        assertEquals("id,customer,loan_date,returned,book_id,isbn,title,author", lines[0]);
+        assertEquals("2,Fulano,2020-01-02,true,1,123,\"Aventuras, As\",Artur", lines[2]);
+    }
+
+    @Test
+    @DisplayName("Deve listar os emprestimos vencidos a partir da quantidade de dias informada")
+    void findOverdueTest() throws Exception {
+        Loan loan = createLoan();
+        loan.setId(1L);
+        BDDMockito.given(loanService.findOverdue(Mockito.eq(LocalDate.now().minusDays(10)), Mockito.any(Pageable.class)))
+                .willReturn(new PageImpl<>(Collections.singletonList(loan), PageRequest.of(0, 10), 1));
+
+        mockMvc.perform(MockMvcRequestBuilders.get(LOAN_API.concat("/overdue?days=10&page=0&size=10"))
+                .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("content", Matchers.hasSize(1)))
+                .andExpect(jsonPath("content[0].id").value(1L))
+                .andExpect(jsonPath("totalElements").value(1));
+    }
+
+    @Test
+    @DisplayName("Deve devolver emprestimos em lote por ids e isbns")
+    void returnBooksTest() throws Exception {
+        LoanReturnDTO dto = LoanReturnDTO.builder().ids(Arrays.asList(1L, 2L)).isbns(Collections.singletonList("123")).build();
+        LoanReturnResultDTO result = LoanReturnResultDTO.builder()
+                .returned(Arrays.asList(1L, 5L))
+                .alreadyReturned(Collections.singletonList(2L))
+                .build();
+        BDDMockito.given(loanService.returnBatch(dto.getIds(), dto.getIsbns())).willReturn(result);
+
+        mockMvc.perform(patch(LOAN_API.concat("/return"))
+                .accept(MediaType.APPLICATION_JSON)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(new ObjectMapper().writeValueAsString(dto)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("returned", hasSize(2)))
+                .andExpect(jsonPath("alreadyReturned[0]").value(2L))
+                .andExpect(jsonPath("notFound", hasSize(0)));
+
+        Mockito.verify(loanService, Mockito.never()).getById(anyLong());
+    }
+
+    private void givenExportedLoans() {
+        Book book = Book.builder().id(1L).isbn("123").title("Aventuras, As").author("Artur").build();
+        Loan open = Loan.builder().id(1L).customer("Gabi").book(book).loanDate(LocalDate.of(2020, 1, 1)).returned(false).build();
+        Loan returned = Loan.builder().id(2L).customer("Fulano").book(book).loanDate(LocalDate.of(2020, 1, 2)).returned(true).build();
+        Mockito.doAnswer(invocation -> {
+            Consumer<Loan> consumer = invocation.getArgument(0);
+            consumer.accept(open);
+            consumer.accept(returned);
+            return null;
+        }).when(loanService).exportAll(Mockito.any());
+    }
+
 }
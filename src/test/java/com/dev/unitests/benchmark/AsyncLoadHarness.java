@@ -0,0 +1,116 @@
+package com.dev.unitests.benchmark;
+
+import org.HdrHistogram.Histogram;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.IntFunction;
+
+/**
+ * Carga HTTP fechada (N clientes em loop) contra o Tomcat real, comparando os endpoints sincronos
+ * com os de /api/async. Imprime vazao, p50/p99/p99.9 e quantas respostas 503 o executor devolveu.
+ *
+ * mvn test-compile exec:java -Dexec.classpathScope=test -Dexec.args="200 20"
+ *     -Dstart-class=com.dev.unitests.benchmark.AsyncLoadHarness
+ */
+public class AsyncLoadHarness {
+
+    private static final int BOOKS = 10000;
+    private static final int TOMCAT_THREADS = 50;
+
+    public static void main(String[] args) throws Exception {
+        int clients = args.length > 0 ? Integer.parseInt(args[0]) : 200;
+        int seconds = args.length > 1 ? Integer.parseInt(args[1]) : 20;
+        System.setProperty("http.maxConnections", String.valueOf(clients));
+
+        ConfigurableApplicationContext context = SeededApplication.start("async-load-test", BOOKS,
+                "server.tomcat.max-threads=" + TOMCAT_THREADS,
+                "server.tomcat.accept-count=" + clients);
+        try {
+            String base = "http://localhost:" + context.getEnvironment().getProperty("local.server.port");
+            IntFunction<String> book = i -> "/books/" + (1 + i % BOOKS);
+            IntFunction<String> loans = i -> "/loans?customer=customer-" + (i % SeededApplication.CUSTOMERS) + "&page=0&size=10";
+
+            run("warmup", base + "/api", book, clients, 5);
+            run("sync  books/{id}", base + "/api", book, clients, seconds);
+            run("async books/{id}", base + "/api/async", book, clients, seconds);
+            run("sync  loans?customer", base + "/api", loans, clients, seconds);
+            run("async loans?customer", base + "/api/async", loans, clients, seconds);
+        } finally {
+            context.close();
+        }
+    }
+
+    private static void run(String name, String prefix, IntFunction<String> path, int clients, int seconds)
+            throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(seconds);
+        Histogram latencies = new Histogram(TimeUnit.SECONDS.toMicros(60), 3);
+        LongAdder ok = new LongAdder();
+        LongAdder rejected = new LongAdder();
+        LongAdder failed = new LongAdder();
+
+        List<Thread> threads = new ArrayList<>();
+        for (int c = 0; c < clients; c++) {
+            Thread thread = new Thread(() -> {
+                Histogram local = new Histogram(TimeUnit.SECONDS.toMicros(60), 3);
+                while (System.nanoTime() < deadline) {
+                    String url = prefix + path.apply(ThreadLocalRandom.current().nextInt(Integer.MAX_VALUE));
+                    long start = System.nanoTime();
+                    int status = get(url);
+                    local.recordValue(Math.min(TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - start),
+                            local.getHighestTrackableValue()));
+                    if (status == 200) {
+                        ok.increment();
+                    } else if (status == 503) {
+                        rejected.increment();
+                    } else {
+                        failed.increment();
+                    }
+                }
+                synchronized (latencies) {
+                    latencies.add(local);
+                }
+            });
+            threads.add(thread);
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        System.out.printf("%-22s %8.0f req/s  p50 %6.1f ms  p99 %7.1f ms  p99.9 %7.1f ms  max %7.1f ms  503 %d  errors %d%n",
+                name, ok.sum() / (double) seconds,
+                latencies.getValueAtPercentile(50) / 1000.0,
+                latencies.getValueAtPercentile(99) / 1000.0,
+                latencies.getValueAtPercentile(99.9) / 1000.0,
+                latencies.getMaxValue() / 1000.0,
+                rejected.sum(), failed.sum());
+    }
+
+    private static int get(String url) {
+        try {
+            HttpURLConnection connection = (HttpURLConnection) new URL(url).openConnection();
+            connection.setRequestProperty("Accept", "application/json");
+            int status = connection.getResponseCode();
+            InputStream body = status < 400 ? connection.getInputStream() : connection.getErrorStream();
+            if (body != null) {
+                byte[] buffer = new byte[8192];
+                while (body.read(buffer) != -1) {
+                    //consome a resposta para reaproveitar a conexao keep-alive
+                }
+                body.close();
+            }
+            return status;
+        } catch (IOException e) {
+            return -1;
+        }
+    }
+}
@@ -0,0 +1,119 @@
+package com.dev.unitests.benchmark;
+
+import org.flywaydb.core.Flyway;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Latencia das consultas por isbn e por customer em funcao do tamanho das tabelas,
+ * com o schema das migracoes (indexed=true) e sem os indices de V2 (indexed=false).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class IndexLookupBenchmark {
+
+    @Param({"1000", "10000", "100000"})
+    public int tableSize;
+
+    @Param({"true", "false"})
+    public boolean indexed;
+
+    private Connection connection;
+    private PreparedStatement findByIsbn;
+    private PreparedStatement findByCustomer;
+
+    @Setup
+    public void setup() throws SQLException {
+        String url = "jdbc:h2:mem:lookup-" + tableSize + "-" + indexed + ";DB_CLOSE_DELAY=-1";
+        Flyway.configure().dataSource(url, "sa", "").load().migrate();
+
+        connection = DriverManager.getConnection(url, "sa", "");
+        if (!indexed) {
+            try (Statement statement = connection.createStatement()) {
+                statement.execute("drop index ux_book_isbn");
+                statement.execute("drop index idx_loan_customer");
+            }
+        }
+        seed();
+
+        findByIsbn = connection.prepareStatement("select id, title, author, isbn from book where isbn = ?");
+        findByCustomer = connection.prepareStatement("select id from loan where customer = ?");
+    }
+
+    @TearDown
+    public void tearDown() throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("drop all objects");
+        }
+        connection.close();
+    }
+
+    @Benchmark
+    public boolean findBookByIsbn() throws SQLException {
+        findByIsbn.setString(1, "isbn-" + ThreadLocalRandom.current().nextInt(tableSize));
+        try (ResultSet resultSet = findByIsbn.executeQuery()) {
+            return resultSet.next();
+        }
+    }
+
+    @Benchmark
+    public boolean findLoanByCustomer() throws SQLException {
+        findByCustomer.setString(1, "customer-" + ThreadLocalRandom.current().nextInt(tableSize));
+        try (ResultSet resultSet = findByCustomer.executeQuery()) {
+            return resultSet.next();
+        }
+    }
+
+    private void seed() throws SQLException {
+        connection.setAutoCommit(false);
+        try (PreparedStatement book = connection.prepareStatement(
+                "insert into book (id, title, author, isbn) values (?, ?, ?, ?)");
+             PreparedStatement loan = connection.prepareStatement(
+                     "insert into loan (id, customer, id_book, loan_date, returned) values (?, ?, ?, current_date, true)")) {
+            for (int i = 0; i < tableSize; i++) {
+                book.setLong(1, i);
+                book.setString(2, "Titulo " + i);
+                book.setString(3, "Autor " + i);
+                book.setString(4, "isbn-" + i);
+                book.addBatch();
+
+                loan.setLong(1, i);
+                loan.setString(2, "customer-" + i);
+                loan.setLong(3, i);
+                loan.addBatch();
+
+                if (i % 1000 == 999) {
+                    book.executeBatch();
+                    loan.executeBatch();
+                }
+            }
+            book.executeBatch();
+            loan.executeBatch();
+        }
+        connection.commit();
+        connection.setAutoCommit(true);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options options = new OptionsBuilder()
+                .include(IndexLookupBenchmark.class.getSimpleName())
+                .build();
+        new Runner(options).run();
+    }
+}
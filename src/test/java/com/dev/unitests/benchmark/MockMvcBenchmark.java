@@ -0,0 +1,63 @@
+package com.dev.unitests.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.context.WebApplicationContext;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+
+/**
+ * Requisicao completa pelo DispatcherServlet (binding, controller, servico, banco e json).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MockMvcBenchmark {
+
+    @Param({"10000"})
+    public int books;
+
+    private ConfigurableApplicationContext context;
+    private MockMvc mvc;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        context = SeededApplication.start("mockmvc-benchmark", books);
+        mvc = MockMvcBuilders.webAppContextSetup((WebApplicationContext) context).build();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public MvcResult getBookById() throws Exception {
+        long id = 1 + ThreadLocalRandom.current().nextInt(books);
+        return mvc.perform(get("/api/books/" + id).accept(MediaType.APPLICATION_JSON)).andReturn();
+    }
+
+    @Benchmark
+    public MvcResult findBooks() throws Exception {
+        int prefix = ThreadLocalRandom.current().nextInt(100);
+        return mvc.perform(get("/api/books?title=titulo " + prefix + "&page=0&size=10")
+                .accept(MediaType.APPLICATION_JSON)).andReturn();
+    }
+
+    @Benchmark
+    public MvcResult findLoans() throws Exception {
+        int customer = ThreadLocalRandom.current().nextInt(SeededApplication.CUSTOMERS);
+        return mvc.perform(get("/api/loans?customer=customer-" + customer + "&page=0&size=10")
+                .accept(MediaType.APPLICATION_JSON)).andReturn();
+    }
+}
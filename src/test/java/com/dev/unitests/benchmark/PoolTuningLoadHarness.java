@@ -0,0 +1,158 @@
+package com.dev.unitests.benchmark;
+
+import org.HdrHistogram.Histogram;
+import org.h2.tools.Server;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.ServerSocket;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Carga HTTP fechada (N clientes em loop) com o banco num H2 em modo servidor (TCP), onde cada ida ao banco
+ * e uma volta de rede. Roda a mesma mistura duas vezes, com a configuracao padrao e com o perfil perf,
+ * cada uma num banco proprio do mesmo servidor. Mistura: 60% historico do cliente, 20% emprestimos por
+ * cliente, 10% resumo do cliente e 10% cadastro de livro.
+ *
+ * mvn test-compile exec:java -Dexec.classpathScope=test -Dexec.args="64 20"
+ *     -Dstart-class=com.dev.unitests.benchmark.PoolTuningLoadHarness
+ */
+public class PoolTuningLoadHarness {
+
+    private static final int BOOKS = 10000;
+
+    private static final AtomicLong NEXT_ISBN = new AtomicLong();
+
+    public static void main(String[] args) throws Exception {
+        int clients = args.length > 0 ? Integer.parseInt(args[0]) : 64;
+        int seconds = args.length > 1 ? Integer.parseInt(args[1]) : 20;
+        System.setProperty("http.maxConnections", String.valueOf(clients));
+
+        int port = freePort();
+        Server server = Server.createTcpServer("-tcpPort", String.valueOf(port), "-ifNotExists").start();
+        try {
+            measure("default", clients, seconds,
+                    "spring.datasource.url=jdbc:h2:tcp://localhost:" + port + "/mem:pool-default;DB_CLOSE_DELAY=-1");
+            measure("perf", clients, seconds,
+                    "spring.profiles.active=perf",
+                    "library.datasource.port=" + port,
+                    "library.datasource.name=pool-perf");
+        } finally {
+            server.stop();
+        }
+    }
+
+    private static void measure(String name, int clients, int seconds, String... properties) throws InterruptedException {
+        ConfigurableApplicationContext context = SeededApplication.start("pool-" + name, BOOKS, properties);
+        try {
+            String base = "http://localhost:" + context.getEnvironment().getProperty("local.server.port") + "/api";
+            System.out.printf("%-8s pool %s%n", name,
+                    context.getEnvironment().getProperty("spring.datasource.hikari.maximum-pool-size", "10"));
+            run(name + " warmup", base, clients, 5);
+            run(name, base, clients, seconds);
+        } finally {
+            context.close();
+        }
+    }
+
+    private static void run(String name, String base, int clients, int seconds) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(seconds);
+        Histogram latencies = new Histogram(TimeUnit.SECONDS.toMicros(60), 3);
+        LongAdder ok = new LongAdder();
+        LongAdder failed = new LongAdder();
+
+        List<Thread> threads = new ArrayList<>();
+        for (int c = 0; c < clients; c++) {
+            Thread thread = new Thread(() -> {
+                Histogram local = new Histogram(TimeUnit.SECONDS.toMicros(60), 3);
+                while (System.nanoTime() < deadline) {
+                    long start = System.nanoTime();
+                    int status = next(base, ThreadLocalRandom.current().nextInt(Integer.MAX_VALUE));
+                    local.recordValue(Math.min(TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - start),
+                            local.getHighestTrackableValue()));
+                    if (status >= 200 && status < 300) {
+                        ok.increment();
+                    } else {
+                        failed.increment();
+                    }
+                }
+                synchronized (latencies) {
+                    latencies.add(local);
+                }
+            });
+            threads.add(thread);
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        System.out.printf("%-15s %8.0f req/s  p50 %6.1f ms  p99 %7.1f ms  p99.9 %7.1f ms  max %7.1f ms  errors %d%n",
+                name, ok.sum() / (double) seconds,
+                latencies.getValueAtPercentile(50) / 1000.0,
+                latencies.getValueAtPercentile(99) / 1000.0,
+                latencies.getValueAtPercentile(99.9) / 1000.0,
+                latencies.getMaxValue() / 1000.0,
+                failed.sum());
+    }
+
+    private static int next(String base, int i) {
+        String customer = "customer-" + (i % SeededApplication.CUSTOMERS);
+        switch (i % 10) {
+            case 6:
+            case 7:
+                return request("GET", base + "/loans?customer=" + customer + "&page=0&size=10", null);
+            case 8:
+                return request("GET", base + "/loans/customers/" + customer + "/summary", null);
+            case 9:
+                long isbn = NEXT_ISBN.incrementAndGet();
+                return request("POST", base + "/books",
+                        "{\"title\":\"Carga " + isbn + "\",\"author\":\"Autor\",\"isbn\":\"load-" + isbn + "\"}");
+            default:
+                return request("GET", base + "/loans/customers/" + customer + "?size=20", null);
+        }
+    }
+
+    private static int request(String method, String url, String json) {
+        try {
+            HttpURLConnection connection = (HttpURLConnection) new URL(url).openConnection();
+            connection.setRequestMethod(method);
+            connection.setRequestProperty("Accept", "application/json");
+            if (json != null) {
+                connection.setDoOutput(true);
+                connection.setRequestProperty("Content-Type", "application/json");
+                try (OutputStream output = connection.getOutputStream()) {
+                    output.write(json.getBytes(StandardCharsets.UTF_8));
+                }
+            }
+            int status = connection.getResponseCode();
+            InputStream body = status < 400 ? connection.getInputStream() : connection.getErrorStream();
+            if (body != null) {
+                byte[] buffer = new byte[8192];
+                while (body.read(buffer) != -1) {
+                    //consome a resposta para reaproveitar a conexao keep-alive
+                }
+                body.close();
+            }
+            return status;
+        } catch (IOException e) {
+            return -1;
+        }
+    }
+
+    private static int freePort() throws IOException {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+}
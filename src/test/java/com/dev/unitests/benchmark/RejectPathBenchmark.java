@@ -0,0 +1,94 @@
+package com.dev.unitests.benchmark;
+
+import com.dev.unitests.exception.ApiErros;
+import com.dev.unitests.exception.ApplicationControllerAdvice;
+import com.dev.unitests.exception.BusinessException;
+import com.dev.unitests.model.entity.Book;
+import com.dev.unitests.model.entity.Loan;
+import com.dev.unitests.repository.BookRepository;
+import com.dev.unitests.service.BookService;
+import com.dev.unitests.service.LoanService;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.time.LocalDate;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Caminho de rejeicao de BookServiceImpl.save (isbn repetido, respondido pelo IsbnCache) e de
+ * LoanServiceImpl.save (livro ja emprestado), e o tratamento no ApplicationControllerAdvice com
+ * excecao nova e corpo novo (como antes) ou com a instancia unica e o corpo em cache.
+ * Rodar com -prof gc (padrao do profile benchmark) para ver a alocacao por operacao.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RejectPathBenchmark {
+
+    @Param({"10000"})
+    public int books;
+
+    private ConfigurableApplicationContext context;
+    private BookService bookService;
+    private LoanService loanService;
+    private ApplicationControllerAdvice advice;
+
+    private Book loanedBook;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        context = SeededApplication.start("reject-path-benchmark", books);
+        bookService = context.getBean(BookService.class);
+        loanService = context.getBean(LoanService.class);
+        advice = context.getBean(ApplicationControllerAdvice.class);
+
+        loanedBook = context.getBean(BookRepository.class).findByIsbn("isbn-0").get();
+        loanService.save(Loan.builder().book(loanedBook).customer("benchmark").loanDate(LocalDate.now()).build());
+        //coloca o isbn no cache, como acontece com os isbns repetidos em producao
+        bookService.getBookByIsbn("isbn-1");
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public Object bookSaveDuplicateIsbn() {
+        try {
+            return bookService.save(Book.builder().title("titulo").author("autor").isbn("isbn-1").build());
+        } catch (BusinessException e) {
+            return advice.handleBusinessException(e);
+        }
+    }
+
+    @Benchmark
+    public Object loanSaveLoanedBook() {
+        try {
+            return loanService.save(Loan.builder().book(loanedBook).customer("benchmark").loanDate(LocalDate.now()).build());
+        } catch (BusinessException e) {
+            return advice.handleBusinessException(e);
+        }
+    }
+
+    @Benchmark
+    public ApiErros rejectWithNewException() {
+        try {
+            throw new BusinessException("Isbn já cadastrado");
+        } catch (BusinessException e) {
+            return new ApiErros(e);
+        }
+    }
+
+    @Benchmark
+    public ApiErros rejectWithConstant() {
+        try {
+            throw BusinessException.ISBN_ALREADY_REGISTERED;
+        } catch (BusinessException e) {
+            return advice.handleBusinessException(e);
+        }
+    }
+}
@@ -0,0 +1,52 @@
+package com.dev.unitests.benchmark;
+
+import com.dev.unitests.model.entity.Loan;
+import com.dev.unitests.repository.LoanRepository;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * LoanRepository.findByBookIsbnOrCustomer sobre o H2 populado.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RepositoryBenchmark {
+
+    @Param({"10000"})
+    public int books;
+
+    private ConfigurableApplicationContext context;
+    private LoanRepository loanRepository;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        context = SeededApplication.start("repository-benchmark", books);
+        loanRepository = context.getBean(LoanRepository.class);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public Page<Loan> findByCustomer() {
+        String customer = "customer-" + ThreadLocalRandom.current().nextInt(SeededApplication.CUSTOMERS);
+        return loanRepository.findByBookIsbnOrCustomer(null, customer, PageRequest.of(0, 10));
+    }
+
+    @Benchmark
+    public Page<Loan> findByIsbn() {
+        String isbn = "isbn-" + ThreadLocalRandom.current().nextInt(books);
+        return loanRepository.findByBookIsbnOrCustomer(isbn, null, PageRequest.of(0, 10));
+    }
+}
@@ -0,0 +1,69 @@
+package com.dev.unitests.benchmark;
+
+import com.dev.unitests.LibrarywithTddApplication;
+import com.dev.unitests.model.entity.Book;
+import com.dev.unitests.model.entity.Loan;
+import com.dev.unitests.repository.BookRepository;
+import com.dev.unitests.repository.LoanRepository;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Sobe a aplicacao completa sobre um H2 em memoria e popula livros e emprestimos para os benchmarks.
+ * Cada livro i tem titulo "Titulo i", autor "Autor (i % 100)", isbn "isbn-i" e um emprestimo ja
+ * devolvido do cliente "customer-(i % 1000)".
+ */
+final class SeededApplication {
+
+    static final int CUSTOMERS = 1000;
+
+    private SeededApplication() {
+    }
+
+    static ConfigurableApplicationContext start(String name, int books, String... extraProperties) {
+        List<String> properties = new ArrayList<>();
+        properties.add("spring.datasource.url=jdbc:h2:mem:" + name + ";DB_CLOSE_DELAY=-1");
+        properties.add("server.port=0");
+        properties.add("spring.main.banner-mode=off");
+        properties.add("logging.level.root=warn");
+        //os benchmarks medem a aplicacao, nao o limite por cliente
+        properties.add("library.rate-limit.enabled=false");
+        for (String property : extraProperties) {
+            properties.add(property);
+        }
+        ConfigurableApplicationContext context = new SpringApplicationBuilder(LibrarywithTddApplication.class)
+                .properties(properties.toArray(new String[0]))
+                .run();
+        seed(context, books);
+        return context;
+    }
+
+    private static void seed(ConfigurableApplicationContext context, int books) {
+        BookRepository bookRepository = context.getBean(BookRepository.class);
+        LoanRepository loanRepository = context.getBean(LoanRepository.class);
+        LocalDate loanDate = LocalDate.now().minusDays(60);
+
+        for (int from = 0; from < books; from += 1000) {
+            List<Book> bookBatch = new ArrayList<>();
+            for (int i = from; i < Math.min(from + 1000, books); i++) {
+                bookBatch.add(Book.builder().title("Titulo " + i).author("Autor " + (i % 100)).isbn("isbn-" + i).build());
+            }
+            List<Book> saved = bookRepository.saveAll(bookBatch);
+
+            List<Loan> loanBatch = new ArrayList<>();
+            for (int i = 0; i < saved.size(); i++) {
+                loanBatch.add(Loan.builder()
+                        .book(saved.get(i))
+                        .customer("customer-" + ((from + i) % CUSTOMERS))
+                        .loanDate(loanDate)
+                        .returned(true)
+                        .build());
+            }
+            loanRepository.saveAll(loanBatch);
+        }
+    }
+}
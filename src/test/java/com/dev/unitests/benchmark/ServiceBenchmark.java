@@ -0,0 +1,73 @@
+package com.dev.unitests.benchmark;
+
+import com.dev.unitests.model.entity.Book;
+import com.dev.unitests.model.entity.Loan;
+import com.dev.unitests.repository.BookRepository;
+import com.dev.unitests.service.BookService;
+import com.dev.unitests.service.LoanService;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+
+import java.time.LocalDate;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * BookServiceImpl.find e LoanServiceImpl.save sobre o H2 populado.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ServiceBenchmark {
+
+    @Param({"10000"})
+    public int books;
+
+    private ConfigurableApplicationContext context;
+    private BookService bookService;
+    private LoanService loanService;
+    private BookRepository bookRepository;
+
+    private Loan savedLoan;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        context = SeededApplication.start("service-benchmark", books);
+        bookService = context.getBean(BookService.class);
+        loanService = context.getBean(LoanService.class);
+        bookRepository = context.getBean(BookRepository.class);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public Page<Book> bookServiceFind() {
+        int prefix = ThreadLocalRandom.current().nextInt(100);
+        return bookService.find(Book.builder().title("titulo " + prefix).build(), PageRequest.of(0, 10));
+    }
+
+    @Benchmark
+    public Loan loanServiceSave() {
+        Book book = bookRepository.findByIsbn("isbn-" + ThreadLocalRandom.current().nextInt(books)).get();
+        savedLoan = loanService.save(Loan.builder().book(book).customer("benchmark").loanDate(LocalDate.now()).build());
+        return savedLoan;
+    }
+
+    //devolve o emprestimo para que o livro possa ser emprestado de novo nas proximas invocacoes
+    @TearDown(Level.Invocation)
+    public void returnLoan() {
+        if (savedLoan != null) {
+            savedLoan.setReturned(true);
+            loanService.update(savedLoan);
+            savedLoan = null;
+        }
+    }
+}
@@ -0,0 +1,45 @@
+package com.dev.unitests.config;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.env.MockEnvironment;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+public class PoolSizeEnvironmentPostProcessorTest {
+
+    @Test
+    @DisplayName("Deve dimensionar o pool pelos nucleos")
+    public void poolSizeFromCpusTest() {
+        MockEnvironment environment = new MockEnvironment()
+                .withProperty(PoolSizeEnvironmentPostProcessor.PER_CPU, "2")
+                .withProperty(PoolSizeEnvironmentPostProcessor.SPINDLES, "1");
+
+        new PoolSizeEnvironmentPostProcessor(4).postProcessEnvironment(environment, null);
+
+        assertEquals(9, environment.getProperty(PoolSizeEnvironmentPostProcessor.MAXIMUM_POOL_SIZE, Integer.class));
+    }
+
+    @Test
+    @DisplayName("Deve manter o tamanho do pool informado explicitamente")
+    public void explicitPoolSizeTest() {
+        MockEnvironment environment = new MockEnvironment()
+                .withProperty(PoolSizeEnvironmentPostProcessor.PER_CPU, "2")
+                .withProperty(PoolSizeEnvironmentPostProcessor.MAXIMUM_POOL_SIZE, "20");
+
+        new PoolSizeEnvironmentPostProcessor(4).postProcessEnvironment(environment, null);
+
+        assertEquals(20, environment.getProperty(PoolSizeEnvironmentPostProcessor.MAXIMUM_POOL_SIZE, Integer.class));
+    }
+
+    @Test
+    @DisplayName("Nao deve alterar o pool fora do perfil perf")
+    public void withoutPerCpuTest() {
+        MockEnvironment environment = new MockEnvironment();
+
+        new PoolSizeEnvironmentPostProcessor(4).postProcessEnvironment(environment, null);
+
+        assertFalse(environment.containsProperty(PoolSizeEnvironmentPostProcessor.MAXIMUM_POOL_SIZE));
+    }
+}
@@ -0,0 +1,32 @@
+package com.dev.unitests.exception;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.Collections;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+public class ApplicationControllerAdviceTest {
+
+    @Test
+    @DisplayName("Deve reaproveitar o corpo de erro das rejeicoes de negocio com a mesma mensagem")
+    public void cachedBusinessErrorTest() {
+        ApplicationControllerAdvice advice = new ApplicationControllerAdvice();
+
+        ApiErros first = advice.handleBusinessException(BusinessException.BOOK_ALREADY_LOANED);
+        ApiErros second = advice.handleBusinessException(new BusinessException("Book already loaned"));
+
+        assertSame(first, second);
+        assertEquals(Collections.singletonList("Book already loaned"), first.getErrors());
+    }
+
+    @Test
+    @DisplayName("Deve montar o corpo de erro quando a rejeicao nao tiver mensagem")
+    public void businessErrorWithoutMessageTest() {
+        ApiErros errors = new ApplicationControllerAdvice().handleBusinessException(new BusinessException(null));
+
+        assertEquals(Collections.singletonList(null), errors.getErrors());
+    }
+}
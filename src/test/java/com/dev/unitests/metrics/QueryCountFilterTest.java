@@ -0,0 +1,108 @@
+package com.dev.unitests.metrics;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.HandlerMapping;
+
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+public class QueryCountFilterTest {
+
+    @Test
+    @DisplayName("Deve registrar quantos comandos SQL a requisicao executou")
+    public void countQueriesPerRequestTest() throws Exception {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        QueryCountInspector inspector = new QueryCountInspector();
+        //fora de uma requisicao nao conta
+        inspector.inspect("select 1");
+
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/books/1");
+        MockFilterChain chain = new MockFilterChain(new HttpServlet() {
+            @Override
+            protected void doGet(HttpServletRequest req, HttpServletResponse resp) {
+                req.setAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE, "/api/books/{id}");
+                inspector.inspect("select b from book b where b.id = ?");
+                inspector.inspect("select l from loan l where l.id_book = ?");
+            }
+        });
+
+        new QueryCountFilter(registry).doFilter(request, new MockHttpServletResponse(), chain);
+
+        DistributionSummary queries = registry.find(QueryCountFilter.QUERIES)
+                .tags("method", "GET", "uri", "/api/books/{id}")
+                .summary();
+        assertNotNull(queries);
+        assertEquals(1, queries.count());
+        assertEquals(2, queries.totalAmount());
+    }
+
+    @Test
+    @DisplayName("Deve somar as consultas feitas no jpaExecutor e registrar a requisicao assincrona uma vez")
+    public void countAsyncQueriesTest() throws Exception {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(1);
+        executor.setTaskDecorator(QueryCountInspector.taskDecorator());
+        executor.initialize();
+        try {
+            MockMvc mvc = MockMvcBuilders.standaloneSetup(new AsyncController(executor))
+                    .addFilters(new QueryCountFilter(registry))
+                    .build();
+
+            MvcResult result = mvc.perform(MockMvcRequestBuilders.get("/async"))
+                    .andExpect(request().asyncStarted())
+                    .andReturn();
+            assertNull(registry.find(QueryCountFilter.QUERIES).summary());
+
+            mvc.perform(MockMvcRequestBuilders.asyncDispatch(result))
+                    .andExpect(status().isOk());
+
+            DistributionSummary queries = registry.find(QueryCountFilter.QUERIES)
+                    .tags("method", "GET", "uri", "/async")
+                    .summary();
+            assertNotNull(queries);
+            assertEquals(1, queries.count());
+            assertEquals(2, queries.totalAmount());
+            //a thread do pool volta sem o contador da requisicao
+            assertNull(executor.submit(QueryCountInspector::current).get());
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @RestController
+    static class AsyncController {
+
+        private final QueryCountInspector inspector = new QueryCountInspector();
+        private final ThreadPoolTaskExecutor executor;
+
+        AsyncController(ThreadPoolTaskExecutor executor) {
+            this.executor = executor;
+        }
+
+        @GetMapping("/async")
+        public CompletableFuture<String> async() {
+            inspector.inspect("select b from book b where b.id = ?");
+            return CompletableFuture.supplyAsync(() -> inspector.inspect("select l from loan l where l.id_book = ?"), executor);
+        }
+    }
+}
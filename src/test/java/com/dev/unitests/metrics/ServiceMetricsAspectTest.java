@@ -0,0 +1,122 @@
+package com.dev.unitests.metrics;
+
+import com.dev.unitests.exception.BusinessException;
+import com.dev.unitests.model.entity.Book;
+import com.dev.unitests.model.entity.Loan;
+import com.dev.unitests.repository.BookRepository;
+import com.dev.unitests.repository.LoanRepository;
+import com.dev.unitests.service.LoanService;
+import com.dev.unitests.service.impl.LoanServiceImpl;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.aop.aspectj.annotation.AspectJProxyFactory;
+
+import javax.persistence.EntityManager;
+import java.time.LocalDate;
+
+import static org.assertj.core.api.Assertions.catchThrowable;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+public class ServiceMetricsAspectTest {
+
+    SimpleMeterRegistry registry;
+
+    LoanRepository repository;
+
+    BookRepository bookRepository;
+
+    LoanService loanService;
+
+    ServiceMetricsAspect aspect;
+
+    @BeforeEach
+    public void setup() {
+        registry = new SimpleMeterRegistry();
+        repository = mock(LoanRepository.class);
+        bookRepository = mock(BookRepository.class);
+
+        aspect = new ServiceMetricsAspect(registry);
+        loanService = advised(new LoanServiceImpl(repository, bookRepository, mock(EntityManager.class)));
+    }
+
+    @Test
+    @DisplayName("Deve registrar a latencia do metodo do servico")
+    public void timeServiceTest() {
+        Loan loan = Loan.builder().id(1L).book(Book.builder().id(1L).build()).customer("gabi").loanDate(LocalDate.now()).build();
+        when(repository.save(loan)).thenReturn(loan);
+        when(bookRepository.markLoaned(1L, 1L)).thenReturn(1);
+
+        loanService.save(loan);
+        loanService.save(loan);
+
+        Timer timer = registry.find(ServiceMetricsAspect.SERVICE_TIMER)
+                .tags("class", "LoanServiceImpl", "method", "save", "exception", "none")
+                .timer();
+        assertNotNull(timer);
+        assertEquals(2, timer.count());
+    }
+
+    @Test
+    @DisplayName("Deve separar a latencia de metodos herdados por repositorio")
+    public void timeInheritedRepositoryMethodTest() {
+        BookRepository books = advised(bookRepository);
+        LoanRepository loans = advised(repository);
+
+        books.save(Book.builder().build());
+        loans.save(Loan.builder().build());
+        loans.save(Loan.builder().build());
+
+        assertEquals(1, registry.find(ServiceMetricsAspect.REPOSITORY_TIMER)
+                .tags("class", "BookRepository", "method", "save").timer().count());
+        assertEquals(2, registry.find(ServiceMetricsAspect.REPOSITORY_TIMER)
+                .tags("class", "LoanRepository", "method", "save").timer().count());
+    }
+
+    @Test
+    @DisplayName("Deve separar por repositorio a latencia das falhas de metodos herdados")
+    public void timeInheritedRepositoryMethodErrorTest() {
+        BookRepository books = advised(bookRepository);
+        LoanRepository loans = advised(repository);
+        when(bookRepository.save(any())).thenThrow(new IllegalStateException());
+        when(repository.save(any())).thenThrow(new IllegalStateException());
+
+        catchThrowable(() -> books.save(Book.builder().build()));
+        catchThrowable(() -> loans.save(Loan.builder().build()));
+        catchThrowable(() -> loans.save(Loan.builder().build()));
+
+        assertEquals(1, registry.find(ServiceMetricsAspect.REPOSITORY_TIMER)
+                .tags("class", "BookRepository", "method", "save", "exception", "IllegalStateException").timer().count());
+        assertEquals(2, registry.find(ServiceMetricsAspect.REPOSITORY_TIMER)
+                .tags("class", "LoanRepository", "method", "save", "exception", "IllegalStateException").timer().count());
+    }
+
+    @Test
+    @DisplayName("Deve contar a regra de negocio violada pelo motivo")
+    public void businessRejectionTest() {
+        Loan loan = Loan.builder().id(1L).book(Book.builder().id(1L).build()).customer("gabi").build();
+        when(repository.save(loan)).thenReturn(loan);
+        when(bookRepository.markLoaned(1L, 1L)).thenReturn(0);
+
+        Throwable exception = catchThrowable(() -> loanService.save(loan));
+
+        assertTrue(exception instanceof BusinessException);
+        Counter rejections = registry.find(ServiceMetricsAspect.REJECTIONS).tag("reason", "Book already loaned").counter();
+        assertNotNull(rejections);
+        assertEquals(1, rejections.count());
+        assertEquals(1, registry.find(ServiceMetricsAspect.SERVICE_TIMER)
+                .tags("method", "save", "exception", "BusinessException")
+                .timer().count());
+    }
+
+    private <T> T advised(T target) {
+        AspectJProxyFactory factory = new AspectJProxyFactory(target);
+        //um aspecto so, como no contexto, para que os caches de timers sejam compartilhados
+        factory.addAspect(aspect);
+        return factory.getProxy();
+    }
+}
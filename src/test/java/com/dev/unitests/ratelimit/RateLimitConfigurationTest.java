@@ -0,0 +1,58 @@
+package com.dev.unitests.ratelimit;
+
+import com.dev.unitests.api.resource.BookController;
+import com.dev.unitests.model.entity.Book;
+import com.dev.unitests.service.BookImportService;
+import com.dev.unitests.service.BookService;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.BDDMockito;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
+
+import java.util.Optional;
+
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+@ExtendWith(SpringExtension.class)
+@ActiveProfiles("test")
+@WebMvcTest(controllers = BookController.class,
+        properties = {"library.rate-limit.read.per-second=0.01", "library.rate-limit.read.burst=1"})
+@Import(RateLimitConfiguration.class)
+@AutoConfigureMockMvc
+public class RateLimitConfigurationTest {
+
+    @Autowired
+    MockMvc mvc;
+
+    @MockBean
+    BookService service;
+
+    @MockBean
+    BookImportService importService;
+
+    @Test
+    @DisplayName("Deve responder 429 no formato de erros da API quando o cliente exceder o limite")
+    public void tooManyRequestsTest() throws Exception {
+        BDDMockito.given(service.getById(1L))
+                .willReturn(Optional.of(Book.builder().id(1L).title("As aventuras").author("Artur").isbn("001").build()));
+
+        mvc.perform(MockMvcRequestBuilders.get("/api/books/1").accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk());
+
+        mvc.perform(MockMvcRequestBuilders.get("/api/books/1").accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isTooManyRequests())
+                .andExpect(header().exists(HttpHeaders.RETRY_AFTER))
+                .andExpect(jsonPath("errors[0]").value(RateLimitFilter.RATE_LIMITED));
+    }
+}
@@ -0,0 +1,112 @@
+package com.dev.unitests.ratelimit;
+
+import com.dev.unitests.exception.TooManyRequestsException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.web.servlet.HandlerExceptionResolver;
+import org.springframework.web.servlet.ModelAndView;
+
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class RateLimitFilterTest {
+
+    List<TooManyRequestsException> rejections;
+    HandlerExceptionResolver resolver;
+    AtomicLong clock;
+
+    @BeforeEach
+    void setup() {
+        rejections = new ArrayList<>();
+        clock = new AtomicLong();
+        resolver = (request, response, handler, ex) -> {
+            rejections.add((TooManyRequestsException) ex);
+            response.setStatus(429);
+            return new ModelAndView();
+        };
+    }
+
+    @Test
+    @DisplayName("Deve usar orcamentos separados para leitura e escrita")
+    public void separateBudgetsTest() throws Exception {
+        RateLimitFilter filter = filter(1, 1, 10, 10);
+
+        assertEquals(200, perform(filter, "GET").getStatus());
+        assertEquals(429, perform(filter, "GET").getStatus());
+        assertEquals(200, perform(filter, "POST").getStatus());
+        assertEquals(429, perform(filter, "PATCH").getStatus());
+
+        assertEquals(RateLimitFilter.RATE_LIMITED, rejections.get(0).getMessage());
+        assertEquals(1, rejections.get(0).getRetryAfterSeconds());
+        assertEquals(0, filter.getInFlight());
+    }
+
+    @Test
+    @DisplayName("Deve descartar leituras antes das escritas quando ha muitas requisicoes em andamento")
+    public void shedReadsBeforeWritesTest() throws Exception {
+        RateLimitFilter filter = filter(100, 100, 1, 2);
+        MockHttpServletResponse[] nested = new MockHttpServletResponse[2];
+
+        //uma requisicao em andamento enquanto chegam uma leitura e uma escrita
+        MockHttpServletResponse outer = new MockHttpServletResponse();
+        filter.doFilter(new MockHttpServletRequest("POST", "/api/loans"), outer, new MockFilterChain(new HttpServlet() {
+            @Override
+            protected void service(HttpServletRequest req, HttpServletResponse resp) {
+                try {
+                    nested[0] = perform(filter, "GET");
+                    nested[1] = perform(filter, "POST");
+                } catch (Exception e) {
+                    throw new IllegalStateException(e);
+                }
+            }
+        }));
+
+        assertEquals(200, outer.getStatus());
+        assertEquals(429, nested[0].getStatus());
+        assertEquals(200, nested[1].getStatus());
+        assertEquals(RateLimitFilter.OVERLOADED, rejections.get(0).getMessage());
+        assertEquals(0, filter.getInFlight());
+    }
+
+    @Test
+    @DisplayName("Deve contar a requisicao assincrona como em andamento ate ela terminar")
+    public void asyncInFlightTest() throws Exception {
+        RateLimitFilter filter = filter(100, 100, 10, 10);
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/async/books/1");
+        request.setAsyncSupported(true);
+
+        filter.doFilter(request, new MockHttpServletResponse(), new MockFilterChain(new HttpServlet() {
+            @Override
+            protected void service(HttpServletRequest req, HttpServletResponse resp) {
+                req.startAsync();
+            }
+        }));
+
+        assertEquals(1, filter.getInFlight());
+        request.getAsyncContext().complete();
+        assertEquals(0, filter.getInFlight());
+        assertTrue(rejections.isEmpty());
+    }
+
+    private RateLimitFilter filter(int readBurst, int writeBurst, int readMaxInFlight, int maxInFlight) {
+        return new RateLimitFilter(new TokenBuckets(1, readBurst, 16), new TokenBuckets(1, writeBurst, 16),
+                readMaxInFlight, maxInFlight, resolver, clock::get);
+    }
+
+    private static MockHttpServletResponse perform(RateLimitFilter filter, String method) throws Exception {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        filter.doFilter(new MockHttpServletRequest(method, "/api/books"), response, new MockFilterChain());
+        return response;
+    }
+}
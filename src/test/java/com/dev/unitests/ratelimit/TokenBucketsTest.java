@@ -0,0 +1,49 @@
+package com.dev.unitests.ratelimit;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class TokenBucketsTest {
+
+    static final long SECOND = TimeUnit.SECONDS.toNanos(1);
+
+    @Test
+    @DisplayName("Deve liberar a rajada e depois uma ficha por intervalo")
+    public void burstThenRefillTest() {
+        TokenBuckets buckets = new TokenBuckets(2, 3, 16);
+
+        assertEquals(0, buckets.tryAcquire("10.0.0.1", 0));
+        assertEquals(0, buckets.tryAcquire("10.0.0.1", 0));
+        assertEquals(0, buckets.tryAcquire("10.0.0.1", 0));
+        assertEquals(SECOND / 2, buckets.tryAcquire("10.0.0.1", 0));
+
+        assertEquals(0, buckets.tryAcquire("10.0.0.1", SECOND / 2));
+        assertTrue(buckets.tryAcquire("10.0.0.1", SECOND / 2) > 0);
+    }
+
+    @Test
+    @DisplayName("Deve manter baldes separados para clientes em faixas diferentes")
+    public void separateClientsTest() {
+        TokenBuckets buckets = new TokenBuckets(1, 1, 1024);
+
+        assertEquals(0, buckets.tryAcquire("10.0.0.1", 0));
+        assertTrue(buckets.tryAcquire("10.0.0.1", 0) > 0);
+        assertEquals(0, buckets.tryAcquire("10.0.0.2", 0));
+    }
+
+    @Test
+    @DisplayName("Nao deve acumular mais fichas que a rajada depois de um periodo ocioso")
+    public void idleDoesNotExceedBurstTest() {
+        TokenBuckets buckets = new TokenBuckets(10, 2, 16);
+
+        long later = 60 * SECOND;
+        assertEquals(0, buckets.tryAcquire("cliente", later));
+        assertEquals(0, buckets.tryAcquire("cliente", later));
+        assertTrue(buckets.tryAcquire("cliente", later) > 0);
+    }
+}
@@ -0,0 +1,19 @@
+package com.dev.unitests.repository;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+public class BookRepositoryCustomImplTest {
+
+    @Test
+    @DisplayName("Deve calcular o limite superior do intervalo de um prefixo")
+    public void upperBoundTest() {
+        assertEquals("as b", BookRepositoryCustomImpl.upperBound("as a"));
+        assertEquals("b", BookRepositoryCustomImpl.upperBound("a\uffff"));
+        assertNull(BookRepositoryCustomImpl.upperBound("\uffff"));
+        assertNull(BookRepositoryCustomImpl.upperBound(""));
+    }
+}
@@ -7,9 +7,19 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
 import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.Example;
+import org.springframework.data.domain.ExampleMatcher;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.Sort;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.context.junit.jupiter.SpringExtension;
 
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
 import java.util.Optional;
 
 import static org.junit.jupiter.api.Assertions.*;
@@ -67,6 +77,29 @@ public class BookRepositoryTest {
         assertTrue(byId.isPresent());
     }
 
+    @Test
+    @DisplayName("Deve retornar os livros dos isbns informados")
+    public void findByIsbnInTest() {
+        entityManager.persist(createNewBook("123"));
+        entityManager.persist(createNewBook("456"));
+        entityManager.persist(createNewBook("789"));
+
+        List<Book> books = bookRepository.findByIsbnIn(Arrays.asList("123", "789", "000"));
+
+        assertEquals(2, books.size());
+    }
+
+    @Test
+    @DisplayName("Deve retornar apenas os isbns ja cadastrados")
+    public void findExistingIsbnsTest() {
+        entityManager.persist(createNewBook("123"));
+        entityManager.persist(createNewBook("456"));
+
+        List<String> isbns = bookRepository.findExistingIsbns(Arrays.asList("123", "000"));
+
+        assertEquals(Arrays.asList("123"), isbns);
+    }
+
     @Test
     @DisplayName("Deve salvar um livro")
     public void saveBookTest(){
@@ -77,6 +110,15 @@ public class BookRepositoryTest {
         assertNotNull(saved.getId());
     }
 
+    @Test
+    @DisplayName("Nao deve salvar dois livros com o mesmo isbn")
+    public void uniqueIsbnTest(){
+        bookRepository.saveAndFlush(createNewBook("123"));
+
+        assertThrows(DataIntegrityViolationException.class,
+                () -> bookRepository.saveAndFlush(createNewBook("123")));
+    }
+
     @Test
     @DisplayName("Deve deletar um livro")
     public void deleteBookTest(){
@@ -91,6 +133,192 @@ public class BookRepositoryTest {
         assertNull(deletedBook);
     }
 
+    @Test
+    @DisplayName("Deve buscar livros a partir de um id ordenando pelo id")
+    public void searchAfterTest() {
+        Book first = createNewBook("1");
+        Book second = createNewBook("2");
+        Book third = createNewBook("3");
+        entityManager.persist(first);
+        entityManager.persist(second);
+        entityManager.persist(third);
+        entityManager.persist(Book.builder().title("Outro").author("Ciclano").isbn("4").build());
+
+        Book filter = Book.builder().title("as av").build();
+
+        Slice<Book> slice = bookRepository.searchAfter(filter, first.getId(), 1);
+
+        assertEquals(1, slice.getContent().size());
+        assertEquals(second, slice.getContent().get(0));
+        assertTrue(slice.hasNext());
+
+        Slice<Book> last = bookRepository.searchAfter(filter, second.getId(), 1);
+
+        assertEquals(third, last.getContent().get(0));
+        assertFalse(last.hasNext());
+    }
+
+    @Test
+    @DisplayName("Deve filtrar livros por prefixo igual a busca por Example ignorando maiusculas")
+    public void searchSameResultsAsExampleTest() {
+        entityManager.persist(Book.builder().title("As Aventuras").author("Fulano").isbn("ABC-1").build());
+        entityManager.persist(Book.builder().title("as aventuras 2").author("fulano de tal").isbn("abc-2").build());
+        entityManager.persist(Book.builder().title("Asterix").author("Goscinny").isbn("X-1").build());
+        entityManager.persist(Book.builder().title("Bs Aventuras").author("Fulano").isbn("Y-1").build());
+        entityManager.flush();
+
+        List<Book> filters = Arrays.asList(
+                Book.builder().title("AS AV").build(),
+                Book.builder().title("as").author("FULANO D").build(),
+                Book.builder().isbn("abc").build(),
+                Book.builder().title("").build(),
+                Book.builder().title("z").build(),
+                new Book());
+
+        ExampleMatcher matcher = ExampleMatcher.matching()
+                .withIgnoreCase()
+                .withIgnoreNullValues()
+                .withStringMatcher(ExampleMatcher.StringMatcher.STARTING);
+        PageRequest pageRequest = PageRequest.of(0, 10, Sort.by("title"));
+
+        for (Book filter : filters) {
+            assertEquals(bookRepository.findAll(Example.of(filter, matcher), pageRequest).getContent(),
+                    bookRepository.search(filter, pageRequest).getContent(), filter.toString());
+        }
+    }
+
+    @Test
+    @DisplayName("Deve paginar a busca por prefixo informando o total")
+    public void searchPageTest() {
+        for (int i = 0; i < 3; i++) {
+            entityManager.persist(createNewBook("isbn-" + i));
+        }
+
+        Page<Book> page = bookRepository.search(Book.builder().author("fulano").build(), PageRequest.of(0, 2));
+
+        assertEquals(2, page.getContent().size());
+        assertEquals(3, page.getTotalElements());
+    }
+
+    @Test
+    @DisplayName("Deve gravar as colunas de busca em minusculas")
+    public void searchColumnsTest() {
+        Book book = Book.builder().title("As Aventuras").author("Fulano").isbn("ABC").build();
+
+        entityManager.persistAndFlush(book);
+
+        assertEquals("as aventuras", book.getTitleSearch());
+        assertEquals("fulano", book.getAuthorSearch());
+        assertEquals("abc", book.getIsbnSearch());
+    }
+
+    @Test
+    @DisplayName("Deve marcar o livro como emprestado apenas quando estiver disponivel")
+    public void markLoanedTest() {
+        Book book = entityManager.persistAndFlush(createNewBook("123"));
+
+        assertEquals(1, bookRepository.markLoaned(book.getId(), 10L));
+        assertEquals(0, bookRepository.markLoaned(book.getId(), 11L));
+        assertEquals(1, bookRepository.markLoaned(book.getId(), 10L));
+        entityManager.clear();
+
+        assertEquals(10L, bookRepository.findById(book.getId()).get().getCurrentLoanId());
+    }
+
+    @Test
+    @DisplayName("Deve liberar o livro apenas na devolucao do emprestimo aberto")
+    public void markReturnedTest() {
+        Book book = entityManager.persistAndFlush(createNewBook("123"));
+        bookRepository.markLoaned(book.getId(), 10L);
+
+        assertEquals(0, bookRepository.markReturned(book.getId(), 11L));
+        assertEquals(1, bookRepository.markReturned(book.getId(), 10L));
+        entityManager.clear();
+
+        assertTrue(bookRepository.findById(book.getId()).get().isAvailable());
+    }
+
+    @Test
+    @DisplayName("Deve incrementar a versao do livro ao mudar sua disponibilidade")
+    public void availabilityChangesVersionTest() {
+        Book book = entityManager.persistAndFlush(createNewBook("123"));
+        assertEquals(Optional.of(0L), bookRepository.findVersionById(book.getId()));
+
+        bookRepository.markLoaned(book.getId(), 10L);
+        bookRepository.markReturned(book.getId(), 10L);
+
+        assertEquals(Optional.of(2L), bookRepository.findVersionById(book.getId()));
+        assertEquals(Optional.empty(), bookRepository.findVersionById(999L));
+    }
+
+    @Test
+    @DisplayName("Deve liberar os livros dos emprestimos devolvidos em lote")
+    public void markReturnedByLoanIdsTest() {
+        Book first = entityManager.persistAndFlush(createNewBook("123"));
+        Book second = entityManager.persistAndFlush(createNewBook("456"));
+        bookRepository.markLoaned(first.getId(), 10L);
+        bookRepository.markLoaned(second.getId(), 11L);
+
+        assertEquals(1, bookRepository.markReturnedByLoanIds(Arrays.asList(10L, 12L)));
+        entityManager.clear();
+
+        assertTrue(bookRepository.findById(first.getId()).get().isAvailable());
+        assertFalse(bookRepository.findById(second.getId()).get().isAvailable());
+    }
+
+    @Test
+    @DisplayName("Deve travar apenas os livros ainda disponiveis")
+    public void lockAvailableByIdInTest() {
+        Book loaned = entityManager.persistAndFlush(createNewBook("123"));
+        Book available = entityManager.persistAndFlush(createNewBook("456"));
+        bookRepository.markLoaned(loaned.getId(), 10L);
+
+        List<Long> locked = bookRepository.lockAvailableByIdIn(Arrays.asList(loaned.getId(), available.getId(), 999L));
+
+        assertEquals(Collections.singletonList(available.getId()), locked);
+    }
+
+    @Test
+    @DisplayName("Deve filtrar apenas os livros disponiveis")
+    public void searchAvailableTest() {
+        Book loaned = entityManager.persistAndFlush(createNewBook("123"));
+        Book available = entityManager.persistAndFlush(createNewBook("456"));
+        bookRepository.markLoaned(loaned.getId(), 10L);
+
+        Page<Book> page = bookRepository.search(Book.builder().author("fulano").build(), true, PageRequest.of(0, 10));
+
+        assertEquals(1, page.getTotalElements());
+        assertEquals(available.getId(), page.getContent().get(0).getId());
+    }
+
+    @Test
+    @DisplayName("Deve alterar apenas os campos informados, incrementando a versao")
+    public void updatePartialTest() {
+        Book book = entityManager.persistAndFlush(createNewBook("123"));
+
+        assertEquals(1, bookRepository.updatePartial(book.getId(), null, "Outro Titulo", null));
+        entityManager.clear();
+
+        Book updated = bookRepository.findById(book.getId()).get();
+        assertEquals("Outro Titulo", updated.getTitle());
+        assertEquals("outro titulo", updated.getTitleSearch());
+        assertEquals("Fulano", updated.getAuthor());
+        assertEquals(book.getVersion() + 1, updated.getVersion());
+    }
+
+    @Test
+    @DisplayName("Nao deve alterar o livro quando a versao esperada nao for a atual")
+    public void updatePartialStaleVersionTest() {
+        Book book = entityManager.persistAndFlush(createNewBook("123"));
+
+        assertEquals(0, bookRepository.updatePartial(book.getId(), book.getVersion() + 1, null, "Ciclano"));
+        assertEquals(1, bookRepository.updatePartial(book.getId(), book.getVersion(), null, "Ciclano"));
+        assertEquals(0, bookRepository.updatePartial(999L, null, null, "Ciclano"));
+        entityManager.clear();
+
+        assertEquals("ciclano", bookRepository.findById(book.getId()).get().getAuthorSearch());
+    }
+
     public static Book createNewBook(String isbn) {
         return Book.builder().title("As Aventuras").author("Fulano").isbn(isbn).build();
     }
@@ -2,26 +2,40 @@ package com.dev.unitests.repository;
 
 import com.dev.unitests.model.entity.Book;
 import com.dev.unitests.model.entity.Loan;
+import com.dev.unitests.repository.projection.CustomerLoanCount;
+import com.dev.unitests.repository.projection.LoanStatus;
 import org.junit.jupiter.api.DisplayName;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
 import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Slice;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.context.junit.jupiter.SpringExtension;
 
 import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 import static com.dev.unitests.repository.BookRepositoryTest.createNewBook;
+import static org.assertj.core.api.Assertions.catchThrowable;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 @ExtendWith(SpringExtension.class)
 @ActiveProfiles("test")
-@DataJpaTest
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
 public class LoanRepositoryTest {
 
     @Autowired
@@ -31,15 +45,16 @@ public class LoanRepositoryTest {
     private TestEntityManager entityManager;
 
     @Test
-    @DisplayName("deve verificar se existe empréstimo não devolvido para o livro.")
-    public void existsByBookAndNotReturnedTest() {
-        Loan loan = createAndPersistLoan();
-        Book book = loan.getBook();
+    @DisplayName("Deve gravar empréstimo sem devolução informada como não devolvido")
+    public void persistLoanWithNullReturnedTest() {
+        Book book = createNewBook("123");
+        entityManager.persist(book);
+        Loan loan = Loan.builder().book(book).customer("Fulano").loanDate(LocalDate.now()).returned(null).build();
 
-        //execucao
-        boolean exists = repository.existsByBookAndNotReturned(book);
+        entityManager.persistAndFlush(loan);
 
-        assertTrue(exists);
+        assertFalse(loan.getReturned());
+        assertEquals(book.getId(), loan.getOpenBookId());
     }
 
     @Test
@@ -57,6 +72,226 @@ public class LoanRepositoryTest {
         assertEquals(1, result.getTotalElements());
     }
 
+    @Test
+    @DisplayName("Deve buscar empréstimos apenas pelo customer ou apenas pelo isbn")
+    public void findByCustomerOrIsbnSeparatelyTest() {
+        Loan loan = createAndPersistLoan();
+        Book other = entityManager.persist(createNewBook("456"));
+        entityManager.persist(Loan.builder().book(other).customer("Ciclano").loanDate(LocalDate.now()).build());
+
+        Page<Loan> byCustomer = repository.findByCustomer("Fulano", PageRequest.of(0, 10));
+        Page<Loan> byIsbn = repository.findByBookIsbn("123", PageRequest.of(0, 10));
+        Slice<Loan> byCustomerAfter = repository.findByCustomerAfter("Fulano", loan.getId(), PageRequest.of(0, 10));
+
+        assertEquals(Arrays.asList(loan), byCustomer.getContent());
+        assertEquals(1, byCustomer.getTotalElements());
+        assertEquals(Arrays.asList(loan), byIsbn.getContent());
+        assertTrue(byCustomerAfter.getContent().isEmpty());
+    }
+
+    @Test
+    @DisplayName("Deve percorrer o histórico do cliente do mais recente ao mais antigo")
+    public void findCustomerHistoryTest() {
+        Book book = entityManager.persist(createNewBook("123"));
+        Loan oldest = entityManager.persist(Loan.builder().book(book).customer("Fulano").loanDate(LocalDate.now().minusDays(20)).returned(true).build());
+        Loan sameDayFirst = entityManager.persist(Loan.builder().book(book).customer("Fulano").loanDate(LocalDate.now().minusDays(10)).returned(true).build());
+        Loan sameDaySecond = entityManager.persist(Loan.builder().book(book).customer("Fulano").loanDate(LocalDate.now().minusDays(10)).returned(true).build());
+        Loan newest = entityManager.persist(Loan.builder().book(book).customer("Fulano").loanDate(LocalDate.now()).build());
+        entityManager.persist(Loan.builder().book(entityManager.persist(createNewBook("456"))).customer("Ciclano").loanDate(LocalDate.now()).build());
+
+        Slice<Loan> first = repository.findCustomerHistory("Fulano", PageRequest.of(0, 2));
+        Loan last = first.getContent().get(1);
+        Slice<Loan> second = repository.findCustomerHistoryBefore("Fulano", last.getLoanDate(), last.getId(), PageRequest.of(0, 2));
+
+        assertEquals(Arrays.asList(newest, sameDaySecond), first.getContent());
+        assertTrue(first.hasNext());
+        assertEquals(Arrays.asList(sameDayFirst, oldest), second.getContent());
+        assertFalse(second.hasNext());
+    }
+
+    @Test
+    @DisplayName("Deve contar os empréstimos totais e abertos do cliente")
+    public void countByCustomerTest() {
+        Loan open = createAndPersistLoan();
+        entityManager.persist(Loan.builder().book(open.getBook()).customer("Fulano").loanDate(LocalDate.now()).returned(true).build());
+
+        assertEquals(new CustomerLoanCount(2, 1), repository.countByCustomer("Fulano"));
+        assertEquals(new CustomerLoanCount(0, 0), repository.countByCustomer("Ninguem"));
+    }
+
+    @Test
+    @DisplayName("Deve buscar empréstimos a partir de um id sem contar o total")
+    public void findByBookIsbnOrCustomerAfterTest() {
+        Loan first = createAndPersistLoan();
+        first.setReturned(true);
+        entityManager.flush();
+        Loan second = Loan.builder().book(first.getBook()).customer("Fulano").loanDate(LocalDate.now()).build();
+        entityManager.persist(second);
+
+        Slice<Loan> slice = repository.findByBookIsbnOrCustomerAfter(
+                null, "Fulano", 0L, PageRequest.of(0, 1));
+
+        assertEquals(1, slice.getContent().size());
+        assertEquals(first, slice.getContent().get(0));
+        assertTrue(slice.hasNext());
+
+        Slice<Loan> last = repository.findByBookIsbnOrCustomerAfter(
+                null, "Fulano", first.getId(), PageRequest.of(0, 1));
+
+        assertEquals(second, last.getContent().get(0));
+        assertFalse(last.hasNext());
+    }
+
+    @Test
+    @DisplayName("Não deve permitir dois empréstimos abertos do mesmo livro")
+    public void uniqueOpenLoanTest() {
+        Loan first = createAndPersistLoan();
+        Loan second = Loan.builder().book(first.getBook()).customer("Ciclano").loanDate(LocalDate.now()).build();
+
+        Throwable exception = catchThrowable(() -> repository.saveAndFlush(second));
+
+        assertTrue(exception instanceof DataIntegrityViolationException);
+    }
+
+    @Test
+    @DisplayName("Deve liberar o livro para novo empréstimo após a devolução")
+    public void loanAfterReturnTest() {
+        Loan first = createAndPersistLoan();
+        first.setReturned(true);
+        repository.saveAndFlush(first);
+
+        Loan second = repository.saveAndFlush(
+                Loan.builder().book(first.getBook()).customer("Ciclano").loanDate(LocalDate.now()).build());
+
+        assertNull(first.getOpenBookId());
+        assertEquals(first.getBook().getId(), second.getOpenBookId());
+    }
+
+    @Test
+    @DisplayName("Deve buscar empréstimos e livros em uma única consulta por página")
+    public void findByBookIsbnOrCustomerStatementCountTest() {
+        persistLoansOfDistinctBooks(3);
+        Statistics statistics = clearedStatistics();
+
+        Page<Loan> result = repository.findByBookIsbnOrCustomer(null, "Fulano", PageRequest.of(0, 2));
+        result.getContent().forEach(loan -> loan.getBook().getTitle());
+
+        assertEquals(3, result.getTotalElements());
+        //uma consulta para a pagina (com os livros) e outra para o total
+        assertEquals(2, statistics.getPrepareStatementCount());
+    }
+
+    @Test
+    @DisplayName("Deve buscar empréstimos a partir de um id e seus livros em uma única consulta")
+    public void findByBookIsbnOrCustomerAfterStatementCountTest() {
+        persistLoansOfDistinctBooks(3);
+        Statistics statistics = clearedStatistics();
+
+        Slice<Loan> result = repository.findByBookIsbnOrCustomerAfter(null, "Fulano", 0L, PageRequest.of(0, 2));
+        result.getContent().forEach(loan -> loan.getBook().getTitle());
+
+        assertEquals(2, result.getContent().size());
+        assertEquals(1, statistics.getPrepareStatementCount());
+    }
+
+    @Test
+    @DisplayName("Deve percorrer todos os empréstimos com seus livros em uma única consulta")
+    public void streamAllWithBookTest() {
+        persistLoansOfDistinctBooks(3);
+        Statistics statistics = clearedStatistics();
+
+        List<Loan> loans;
+        try (Stream<Loan> stream = repository.streamAllWithBook()) {
+            loans = stream.collect(Collectors.toList());
+        }
+        loans.forEach(loan -> loan.getBook().getTitle());
+
+        assertEquals(3, loans.size());
+        assertTrue(loans.get(0).getId() < loans.get(1).getId());
+        assertEquals("isbn-0", loans.get(0).getBook().getIsbn());
+        assertEquals(1, statistics.getPrepareStatementCount());
+    }
+
+    @Test
+    @DisplayName("Deve buscar apenas os empréstimos abertos anteriores ao corte, dos mais antigos aos mais novos")
+    public void findOverdueTest() {
+        Book first = entityManager.persist(createNewBook("1"));
+        Book second = entityManager.persist(createNewBook("2"));
+        Book third = entityManager.persist(createNewBook("3"));
+        Loan newer = entityManager.persist(Loan.builder().book(first).customer("Fulano").loanDate(LocalDate.now().minusDays(31)).build());
+        Loan older = entityManager.persist(Loan.builder().book(second).customer("Fulano").loanDate(LocalDate.now().minusDays(60)).build());
+        entityManager.persist(Loan.builder().book(third).customer("Fulano").loanDate(LocalDate.now().minusDays(60)).returned(true).build());
+        entityManager.persist(Loan.builder().book(third).customer("Fulano").loanDate(LocalDate.now()).build());
+
+        Page<Loan> result = repository.findOverdue(LocalDate.now().minusDays(30), PageRequest.of(0, 10));
+
+        assertEquals(Arrays.asList(older, newer), result.getContent());
+        assertEquals(2, result.getTotalElements());
+    }
+
+    @Test
+    @DisplayName("Deve devolver em lote apenas os empréstimos abertos, liberando o livro para novo empréstimo")
+    public void markReturnedTest() {
+        Book book = entityManager.persist(createNewBook("123"));
+        Loan open = entityManager.persist(Loan.builder().book(book).customer("Fulano").loanDate(LocalDate.now()).build());
+        Loan returned = entityManager.persist(Loan.builder().book(book).customer("Fulano").loanDate(LocalDate.now()).returned(true).build());
+        entityManager.flush();
+
+        int updated = repository.markReturned(Arrays.asList(open.getId(), returned.getId()));
+        entityManager.clear();
+
+        assertEquals(1, updated);
+        assertTrue(repository.findById(open.getId()).get().getReturned());
+        repository.saveAndFlush(Loan.builder().book(book).customer("Ciclano").loanDate(LocalDate.now()).build());
+    }
+
+    @Test
+    @DisplayName("Deve travar apenas os empréstimos ainda abertos")
+    public void lockOpenByIdInTest() {
+        Book book = entityManager.persist(createNewBook("123"));
+        Loan open = entityManager.persist(Loan.builder().book(book).customer("Fulano").loanDate(LocalDate.now()).build());
+        Loan returned = entityManager.persist(Loan.builder().book(book).customer("Fulano").loanDate(LocalDate.now()).returned(true).build());
+
+        List<Long> locked = repository.lockOpenByIdIn(Arrays.asList(open.getId(), returned.getId(), 999L));
+
+        assertEquals(Collections.singletonList(open.getId()), locked);
+    }
+
+    @Test
+    @DisplayName("Deve projetar a situação dos empréstimos por id e os abertos por isbn")
+    public void findStatusTest() {
+        Book first = entityManager.persist(createNewBook("1"));
+        Book second = entityManager.persist(createNewBook("2"));
+        Loan open = entityManager.persist(Loan.builder().book(first).customer("Fulano").loanDate(LocalDate.now()).build());
+        Loan returned = entityManager.persist(Loan.builder().book(second).customer("Fulano").loanDate(LocalDate.now()).returned(true).build());
+
+        List<LoanStatus> byId = repository.findStatusByIdIn(Arrays.asList(open.getId(), returned.getId(), 999L));
+        List<LoanStatus> byIsbn = repository.findOpenStatusByIsbnIn(Arrays.asList("1", "2"));
+
+        assertEquals(2, byId.size());
+        assertTrue(byId.contains(new LoanStatus(returned.getId(), "2", true)));
+        assertEquals(Arrays.asList(new LoanStatus(open.getId(), "1", false)), byIsbn);
+    }
+
+    private void persistLoansOfDistinctBooks(int quantity) {
+        for (int i = 0; i < quantity; i++) {
+            Book book = createNewBook("isbn-" + i);
+            entityManager.persist(book);
+            entityManager.persist(Loan.builder().book(book).customer("Fulano").loanDate(LocalDate.now()).build());
+        }
+        entityManager.flush();
+        entityManager.clear();
+    }
+
+    private Statistics clearedStatistics() {
+        Statistics statistics = entityManager.getEntityManager()
+                .getEntityManagerFactory()
+                .unwrap(SessionFactory.class)
+                .getStatistics();
+        statistics.clear();
+        return statistics;
+    }
+
     private Loan createAndPersistLoan() {
         Book book = createNewBook("123");
         entityManager.persist(book);
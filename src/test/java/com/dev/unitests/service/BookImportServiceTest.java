@@ -0,0 +1,126 @@
+package com.dev.unitests.service;
+
+import com.dev.unitests.api.dto.BookDTO;
+import com.dev.unitests.api.dto.BookImportResultDTO;
+import com.dev.unitests.model.entity.Book;
+import com.dev.unitests.repository.BookRepository;
+import com.dev.unitests.service.cache.IsbnCache;
+import com.dev.unitests.service.impl.BookImportServiceImpl;
+import com.dev.unitests.service.search.BookSearchIndex;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import javax.persistence.EntityManager;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(SpringExtension.class)
+@ActiveProfiles("test")
+public class BookImportServiceTest {
+
+    BookImportService importService;
+
+    @MockBean
+    BookRepository bookRepository;
+
+    @MockBean
+    PlatformTransactionManager transactionManager;
+
+    @MockBean
+    EntityManager entityManager;
+
+    @BeforeEach
+    void setup() {
+        this.importService = new BookImportServiceImpl(bookRepository, new IsbnCache(100, Duration.ofMinutes(5)),
+                new BookSearchIndex(), transactionManager, entityManager, 2);
+    }
+
+    @Test
+    @DisplayName("Deve importar os livros em lotes descartando duplicados e invalidos")
+    public void importBooksTest() {
+        when(bookRepository.findExistingIsbns(anyCollection()))
+                .thenReturn(Collections.singletonList("002"))
+                .thenReturn(Collections.emptyList());
+
+        List<BookDTO> books = Arrays.asList(
+                book("001"),
+                book("002"),
+                BookDTO.builder().title("Sem isbn").author("Artur").build(),
+                book("003"),
+                book("003"));
+
+        BookImportResultDTO result = importService.importBooks(books.iterator());
+
+        assertEquals(5, result.getReceived());
+        assertEquals(2, result.getImported());
+        assertEquals(2, result.getDuplicated());
+        assertEquals(1, result.getInvalid());
+
+        ArgumentCaptor<List<Book>> saved = ArgumentCaptor.forClass(List.class);
+        verify(bookRepository, times(2)).saveAll(saved.capture());
+        assertEquals("001", saved.getAllValues().get(0).get(0).getIsbn());
+        assertEquals(1, saved.getAllValues().get(1).size());
+        verify(bookRepository, times(2)).findExistingIsbns(anyCollection());
+        verify(entityManager, times(2)).clear();
+    }
+
+    @Test
+    @DisplayName("Deve repetir o lote contando como duplicado o isbn gravado por outra requisicao")
+    public void importConcurrentDuplicateTest() {
+        when(bookRepository.findExistingIsbns(anyCollection()))
+                .thenReturn(Collections.emptyList())
+                .thenReturn(Collections.singletonList("002"));
+        when(bookRepository.saveAll(anyList()))
+                .thenThrow(new DataIntegrityViolationException("isbn"))
+                .thenAnswer(invocation -> invocation.getArgument(0));
+
+        BookImportResultDTO result = importService.importBooks(Arrays.asList(book("001"), book("002")).iterator());
+
+        assertEquals(1, result.getImported());
+        assertEquals(1, result.getDuplicated());
+        ArgumentCaptor<List<Book>> saved = ArgumentCaptor.forClass(List.class);
+        verify(bookRepository, times(2)).saveAll(saved.capture());
+        assertEquals(1, saved.getAllValues().get(1).size());
+        assertEquals("001", saved.getAllValues().get(1).get(0).getIsbn());
+    }
+
+    @Test
+    @DisplayName("Deve propagar a violacao que nao vier de isbn ja cadastrado")
+    public void importOtherViolationTest() {
+        when(bookRepository.findExistingIsbns(anyCollection())).thenReturn(Collections.emptyList());
+        when(bookRepository.saveAll(anyList())).thenThrow(new DataIntegrityViolationException("title"));
+
+        assertThrows(DataIntegrityViolationException.class,
+                () -> importService.importBooks(Collections.singletonList(book("001")).iterator()));
+        verify(bookRepository, times(1)).saveAll(anyList());
+    }
+
+    @Test
+    @DisplayName("Nao deve acessar o banco quando nao houver livros validos")
+    public void importEmptyTest() {
+        BookImportResultDTO result = importService.importBooks(Collections.<BookDTO>emptyList().iterator());
+
+        assertEquals(0, result.getReceived());
+        verify(bookRepository, never()).saveAll(anyList());
+    }
+
+    private BookDTO book(String isbn) {
+        return BookDTO.builder().title("As aventuras").author("Artur").isbn(isbn).build();
+    }
+}
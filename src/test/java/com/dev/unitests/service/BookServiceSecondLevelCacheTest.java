@@ -0,0 +1,162 @@
+package com.dev.unitests.service;
+
+import com.dev.unitests.config.SecondLevelCacheConfiguration;
+import com.dev.unitests.model.entity.Book;
+import com.dev.unitests.model.entity.Loan;
+import com.dev.unitests.repository.BookRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import javax.persistence.EntityManagerFactory;
+import java.time.LocalDate;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest
+public class BookServiceSecondLevelCacheTest {
+
+    @Autowired
+    BookService bookService;
+
+    @Autowired
+    BookRepository bookRepository;
+
+    @Autowired
+    LoanService loanService;
+
+    @Autowired
+    EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    MeterRegistry meterRegistry;
+
+    Statistics statistics;
+
+    @BeforeEach
+    public void setUp() {
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+    }
+
+    @Test
+    @DisplayName("Deve obter o livro pelo id a partir do cache de segundo nivel")
+    public void getByIdFromCacheTest() {
+        Book book = bookRepository.save(newBook("l2-get"));
+        statistics.clear();
+
+        bookService.getById(book.getId());
+        bookService.getById(book.getId());
+
+        assertEquals(2, statistics.getDomainDataRegionStatistics(SecondLevelCacheConfiguration.BOOK_REGION).getHitCount());
+        assertEquals(0, statistics.getPrepareStatementCount());
+    }
+
+    @Test
+    @DisplayName("Deve refletir a atualizacao do livro no cache de segundo nivel")
+    public void updateRefreshesCacheTest() {
+        Book book = bookRepository.save(newBook("l2-update"));
+        Book loaded = bookService.getById(book.getId()).get();
+
+        loaded.setTitle("Novo titulo");
+        bookService.update(loaded);
+
+        assertTrue(entityManagerFactory.getCache().contains(Book.class, book.getId()));
+        assertEquals("Novo titulo", bookService.getById(book.getId()).get().getTitle());
+        assertEquals(1L, bookService.getById(book.getId()).get().getVersion());
+    }
+
+    @Test
+    @DisplayName("Deve remover o livro do cache de segundo nivel ao deletar")
+    public void deleteEvictsCacheTest() {
+        Book book = bookRepository.save(newBook("l2-delete"));
+        bookService.getById(book.getId());
+
+        bookService.delete(book);
+        statistics.clear();
+
+        //READ_WRITE deixa uma trava no lugar da entrada, entao a leitura tem que ir ao banco
+        assertFalse(bookService.getById(book.getId()).isPresent());
+        assertEquals(0, statistics.getDomainDataRegionStatistics(SecondLevelCacheConfiguration.BOOK_REGION).getHitCount());
+        assertFalse(bookRepository.findByIsbn(book.getIsbn()).isPresent());
+    }
+
+    @Test
+    @DisplayName("Deve invalidar o cache de segundo nivel na atualizacao parcial")
+    public void updatePartialInvalidatesCacheTest() {
+        Book book = bookRepository.save(newBook("l2-patch"));
+        bookService.getById(book.getId());
+
+        bookService.updatePartial(book.getId(), null, "Parcial", null);
+
+        Book updated = bookService.getById(book.getId()).get();
+        assertEquals("Parcial", updated.getTitle());
+        assertEquals("Autor", updated.getAuthor());
+    }
+
+    @Test
+    @DisplayName("Deve usar o cache de consulta na busca por isbn e invalida-lo na atualizacao")
+    public void findByIsbnQueryCacheTest() {
+        Book book = bookRepository.save(newBook("l2-isbn"));
+        bookRepository.findByIsbn(book.getIsbn());
+        statistics.clear();
+
+        bookRepository.findByIsbn(book.getIsbn());
+        assertEquals(1, statistics.getQueryRegionStatistics(SecondLevelCacheConfiguration.BOOK_BY_ISBN_REGION).getHitCount());
+        assertEquals(0, statistics.getPrepareStatementCount());
+
+        Book loaded = bookService.getById(book.getId()).get();
+        loaded.setAuthor("Outro autor");
+        bookService.update(loaded);
+
+        assertEquals("Outro autor", bookRepository.findByIsbn(book.getIsbn()).get().getAuthor());
+    }
+
+    @Test
+    @DisplayName("Deve manter no cache os outros livros ao registrar um emprestimo")
+    public void loanKeepsOtherBooksCachedTest() {
+        Book loaned = bookRepository.save(newBook("l2-loaned"));
+        Book other = bookRepository.save(newBook("l2-other"));
+        bookService.getById(loaned.getId());
+        bookService.getById(other.getId());
+        bookRepository.findByIsbn(other.getIsbn());
+
+        loanService.save(Loan.builder().book(loaned).customer("Fulano").loanDate(LocalDate.now()).build());
+        statistics.clear();
+
+        assertTrue(entityManagerFactory.getCache().contains(Book.class, other.getId()));
+        assertTrue(bookService.getById(other.getId()).get().isAvailable());
+        assertTrue(bookRepository.findByIsbn(other.getIsbn()).isPresent());
+        assertEquals(1, statistics.getQueryRegionStatistics(SecondLevelCacheConfiguration.BOOK_BY_ISBN_REGION).getHitCount());
+        assertEquals(0, statistics.getPrepareStatementCount());
+
+        assertFalse(entityManagerFactory.getCache().contains(Book.class, loaned.getId()));
+        assertFalse(bookService.getById(loaned.getId()).get().isAvailable());
+    }
+
+    @Test
+    @DisplayName("Deve expor acertos do cache de segundo nivel nas metricas")
+    public void cacheMetricsTest() {
+        Book book = bookRepository.save(newBook("l2-metrics"));
+
+        bookService.getById(book.getId());
+
+        assertTrue(meterRegistry.get("cache.gets")
+                .tags("cache", SecondLevelCacheConfiguration.BOOK_REGION, "result", "hit").functionCounter().count() >= 1);
+        assertNotNull(meterRegistry.find("cache.size").tags("cache", SecondLevelCacheConfiguration.BOOK_BY_ISBN_REGION).gauge());
+        //o IsbnCache publica os seus pelo mesmo registro
+        assertNotNull(meterRegistry.find("cache.gets").tags("cache", "isbn", "result", "hit").functionCounter());
+    }
+
+    private static Book newBook(String isbn) {
+        return Book.builder().title("Cache").author("Autor").isbn(isbn).build();
+    }
+}
@@ -1,23 +1,31 @@
 package com.dev.unitests.service;
 
 import com.dev.unitests.exception.BusinessException;
+import com.dev.unitests.exception.PreconditionFailedException;
 import com.dev.unitests.model.entity.Book;
 import com.dev.unitests.repository.BookRepository;
+import com.dev.unitests.service.cache.IsbnCache;
 import com.dev.unitests.service.impl.BookServiceImpl;
+import com.dev.unitests.service.search.BookSearchIndex;
+import com.dev.unitests.service.search.SearchOperator;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.Mockito;
 import org.springframework.boot.test.mock.mockito.MockBean;
-import org.springframework.data.domain.Example;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.context.junit.jupiter.SpringExtension;
 
+import java.time.Duration;
 import java.util.Arrays;
+import java.util.List;
 import java.util.Optional;
 
 import static org.assertj.core.api.Assertions.assertThat;
@@ -31,12 +39,40 @@ public class BookServiceTest {
 
     BookService bookService;
 
+    BookSearchIndex searchIndex;
+
     @MockBean
     BookRepository bookRepository;
 
     @BeforeEach
     void setup() {
-        this.bookService = new BookServiceImpl(bookRepository);
+        this.searchIndex = new BookSearchIndex();
+        this.bookService = new BookServiceImpl(bookRepository, new IsbnCache(100, Duration.ofMinutes(5)), searchIndex);
+    }
+
+    @Test
+    @DisplayName("Deve alterar parcialmente um livro atualizando apenas os termos alterados no indice")
+    public void updatePartialTest() {
+        Book book = savedBook();
+        searchIndex.index(book);
+        when(bookRepository.updatePartial(book.getId(), null, "Memorias Postumas", null)).thenReturn(1);
+
+        assertTrue(bookService.updatePartial(book.getId(), null, "Memorias Postumas", null));
+
+        assertEquals(Arrays.asList(book.getId()), searchIndex.search("memorias", SearchOperator.AND, 10));
+        assertEquals(Arrays.asList(book.getId()), searchIndex.search(book.getAuthor(), SearchOperator.AND, 10));
+        verify(bookRepository, never()).findById(any());
+    }
+
+    @Test
+    @DisplayName("Deve diferenciar livro inexistente de versao desatualizada na alteracao parcial")
+    public void updatePartialNotFoundOrStaleTest() {
+        when(bookRepository.updatePartial(anyLong(), any(), any(), any())).thenReturn(0);
+        when(bookRepository.existsById(1L)).thenReturn(true);
+
+        assertFalse(bookService.updatePartial(2L, 5L, "titulo", null));
+        assertFalse(bookService.updatePartial(1L, null, "titulo", null));
+        assertThrows(PreconditionFailedException.class, () -> bookService.updatePartial(1L, 5L, "titulo", null));
     }
 
     @Test
@@ -72,6 +108,29 @@ public class BookServiceTest {
         verify(bookRepository, never()).save(book);
     }
 
+    @Test
+    @DisplayName("Deve lançar erro de negocio quando o indice unico rejeitar o isbn duplicado")
+    public void shouldNotSaveABookWhenUniqueIsbnIsViolated() {
+        Book book = getBook();
+
+        when(bookRepository.existsByIsbn(anyString())).thenReturn(false);
+        when(bookRepository.save(book)).thenThrow(new DataIntegrityViolationException("ux_book_isbn"));
+
+        Throwable exception = assertThrows(BusinessException.class, () -> bookService.save(book));
+        assertEquals("Isbn já cadastrado", exception.getMessage());
+    }
+
+    @Test
+    @DisplayName("Deve rejeitar o isbn duplicado com a instancia unica, sem stack trace")
+    public void duplicatedIsbnUsesPreallocatedExceptionTest() {
+        when(bookRepository.existsByIsbn(anyString())).thenReturn(true);
+
+        Throwable exception = assertThrows(BusinessException.class, () -> bookService.save(getBook()));
+
+        assertSame(BusinessException.ISBN_ALREADY_REGISTERED, exception);
+        assertEquals(0, exception.getStackTrace().length);
+    }
+
     @Test
     @DisplayName("Deve obter um livro por Id")
     public void getBookById() {
@@ -170,7 +229,7 @@ public class BookServiceTest {
 
         Page<Book> page = new PageImpl<>(Arrays.asList(book), pageable, 1);
 
-        when(bookRepository.findAll(any(Example.class), any(PageRequest.class)))
+        when(bookRepository.search(any(Book.class), any(PageRequest.class)))
                 .thenReturn(page);
 
         //execucao
@@ -183,6 +242,20 @@ public class BookServiceTest {
         assertEquals(10, bookPage.getPageable().getPageSize());
     }
 
+    @Test
+    @DisplayName("Deve filtrar livros a partir de um id")
+    public void findBookAfterTest(){
+        Book book = savedBook();
+
+        when(bookRepository.searchAfter(any(Book.class), eq(0L), eq(10)))
+                .thenReturn(new SliceImpl<>(Arrays.asList(book), PageRequest.of(0, 10), false));
+
+        Slice<Book> slice = bookService.findAfter(getBook(), null, 10);
+
+        assertEquals(Arrays.asList(book), slice.getContent());
+        assertFalse(slice.hasNext());
+    }
+
     @Test
     @DisplayName("Deve obterum livro pelo isbn")
     public void getBookByIsbnTest(){
@@ -197,6 +270,68 @@ public class BookServiceTest {
         assertEquals("1230", bookByIsbn.get().getIsbn());
     }
 
+    @Test
+    @DisplayName("Deve consultar o banco apenas uma vez para o mesmo isbn")
+    public void getBookByIsbnCachedTest(){
+        String isbn = "1230";
+        when(bookRepository.findByIsbn(isbn))
+                .thenReturn(Optional.of(Book.builder().id(1L).isbn(isbn).build()));
+
+        //o acerto le o livro atual pelo id, ja emprestado depois da primeira consulta
+        when(bookRepository.findById(1L))
+                .thenReturn(Optional.of(Book.builder().id(1L).isbn(isbn).currentLoanId(5L).build()));
+
+        bookService.getBookByIsbn(isbn);
+        Optional<Book> bookByIsbn = bookService.getBookByIsbn(isbn);
+
+        assertTrue(bookByIsbn.isPresent());
+        assertEquals(5L, bookByIsbn.get().getCurrentLoanId());
+        verify(bookRepository, times(1)).findByIsbn(isbn);
+        verify(bookRepository, times(1)).findById(1L);
+    }
+
+    @Test
+    @DisplayName("Deve invalidar o isbn em cache ao salvar um livro")
+    public void saveInvalidatesCachedIsbnTest(){
+        Book book = getBook();
+        when(bookRepository.findByIsbn(book.getIsbn())).thenReturn(Optional.empty());
+        when(bookRepository.save(book)).thenReturn(savedBook());
+
+        assertFalse(bookService.getBookByIsbn(book.getIsbn()).isPresent());
+        bookService.save(book);
+
+        when(bookRepository.findByIsbn(book.getIsbn())).thenReturn(Optional.of(savedBook()));
+        assertTrue(bookService.getBookByIsbn(book.getIsbn()).isPresent());
+        verify(bookRepository, times(2)).findByIsbn(book.getIsbn());
+    }
+
+
+    @Test
+    @DisplayName("Deve buscar livros pelo indice mantendo a ordem de relevancia")
+    public void searchTest(){
+        Book first = Book.builder().id(1L).title("Aventuras no mar").author("Artur").isbn("1").build();
+        Book second = Book.builder().id(2L).title("Contos").author("Artur Aventuras").isbn("2").build();
+        when(bookRepository.save(any(Book.class))).then(invocation -> invocation.getArgument(0));
+        bookService.save(first);
+        bookService.save(second);
+
+        when(bookRepository.findAllById(Arrays.asList(1L, 2L))).thenReturn(Arrays.asList(second, first));
+
+        List<Book> books = bookService.search("aventuras", SearchOperator.AND, 10);
+
+        assertEquals(Arrays.asList(first, second), books);
+    }
+
+    @Test
+    @DisplayName("Deve remover do indice de busca o livro apagado")
+    public void deleteRemovesFromSearchIndexTest(){
+        Book book = savedBook();
+        searchIndex.index(book);
+
+        bookService.delete(book);
+
+        assertEquals(0, searchIndex.size());
+    }
 
     private Book getBook() {
         return Book.builder().author("Artur").title("As aventuras").isbn("123").build();
@@ -0,0 +1,166 @@
+package com.dev.unitests.service;
+
+import com.dev.unitests.api.dto.LoanBatchResultDTO;
+import com.dev.unitests.api.dto.LoanDTO;
+import com.dev.unitests.api.dto.LoanReturnResultDTO;
+import com.dev.unitests.exception.BusinessException;
+import com.dev.unitests.model.entity.Book;
+import com.dev.unitests.model.entity.Loan;
+import com.dev.unitests.repository.BookRepository;
+import com.dev.unitests.repository.LoanRepository;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+@SpringBootTest
+public class LoanServiceConcurrencyTest {
+
+    private static final int THREADS = 16;
+    private static final int ROUNDS = 20;
+
+    @Autowired
+    LoanService loanService;
+
+    @Autowired
+    BookRepository bookRepository;
+
+    @Autowired
+    LoanRepository loanRepository;
+
+    @Test
+    @DisplayName("Deve emprestar o livro uma unica vez com varios emprestimos simultaneos")
+    public void concurrentLoansOfSameBookTest() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        try {
+            for (int round = 0; round < ROUNDS; round++) {
+                Book book = bookRepository.save(Book.builder().title("Corrida").author("Autor").isbn("race-" + round).build());
+
+                AtomicInteger saved = new AtomicInteger();
+                AtomicInteger rejected = new AtomicInteger();
+                CountDownLatch start = new CountDownLatch(1);
+                List<Future<?>> futures = new ArrayList<>();
+                for (int i = 0; i < THREADS; i++) {
+                    String customer = "customer-" + i;
+                    futures.add(executor.submit(() -> {
+                        start.await();
+                        try {
+                            loanService.save(Loan.builder().book(book).customer(customer).loanDate(LocalDate.now()).build());
+                            saved.incrementAndGet();
+                        } catch (BusinessException e) {
+                            rejected.incrementAndGet();
+                        }
+                        return null;
+                    }));
+                }
+                start.countDown();
+                for (Future<?> future : futures) {
+                    future.get(30, TimeUnit.SECONDS);
+                }
+
+                assertEquals(1, saved.get());
+                assertEquals(THREADS - 1, rejected.get());
+                Page<Loan> loans = loanRepository.findByBookIsbnOrCustomer(book.getIsbn(), null, PageRequest.of(0, THREADS));
+                assertEquals(1, loans.getTotalElements());
+                assertEquals(loans.getContent().get(0).getId(),
+                        bookRepository.findById(book.getId()).get().getCurrentLoanId());
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    @DisplayName("Deve emprestar o livro uma unica vez com varios lotes simultaneos, informando os demais por item")
+    public void concurrentLoanBatchesOfSameBookTest() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        try {
+            for (int round = 0; round < ROUNDS; round++) {
+                Book book = bookRepository.save(Book.builder().title("Lote").author("Autor").isbn("batch-race-" + round).build());
+
+                AtomicInteger saved = new AtomicInteger();
+                AtomicInteger rejected = new AtomicInteger();
+                CountDownLatch start = new CountDownLatch(1);
+                List<Future<?>> futures = new ArrayList<>();
+                for (int i = 0; i < THREADS; i++) {
+                    LoanDTO dto = LoanDTO.builder().isbn(book.getIsbn()).customer("customer-" + i).build();
+                    futures.add(executor.submit(() -> {
+                        start.await();
+                        LoanBatchResultDTO result = loanService.saveBatch(Collections.singletonList(dto)).get(0);
+                        if (result.getId() != null) {
+                            saved.incrementAndGet();
+                        } else if ("Book already loaned".equals(result.getError())) {
+                            rejected.incrementAndGet();
+                        }
+                        return null;
+                    }));
+                }
+                start.countDown();
+                for (Future<?> future : futures) {
+                    future.get(30, TimeUnit.SECONDS);
+                }
+
+                assertEquals(1, saved.get());
+                assertEquals(THREADS - 1, rejected.get());
+                Page<Loan> loans = loanRepository.findByBookIsbnOrCustomer(book.getIsbn(), null, PageRequest.of(0, THREADS));
+                assertEquals(1, loans.getTotalElements());
+                assertEquals(loans.getContent().get(0).getId(),
+                        bookRepository.findById(book.getId()).get().getCurrentLoanId());
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    @DisplayName("Deve informar a devolucao uma unica vez com varios lotes simultaneos para o mesmo emprestimo")
+    public void concurrentReturnBatchTest() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        try {
+            for (int round = 0; round < ROUNDS; round++) {
+                Book book = bookRepository.save(Book.builder().title("Devolucao").author("Autor").isbn("return-race-" + round).build());
+                Loan loan = loanService.save(Loan.builder().book(book).customer("customer").loanDate(LocalDate.now()).build());
+
+                AtomicInteger returned = new AtomicInteger();
+                AtomicInteger alreadyReturned = new AtomicInteger();
+                CountDownLatch start = new CountDownLatch(1);
+                List<Future<?>> futures = new ArrayList<>();
+                for (int i = 0; i < THREADS; i++) {
+                    futures.add(executor.submit(() -> {
+                        start.await();
+                        LoanReturnResultDTO result = loanService.returnBatch(Collections.singletonList(loan.getId()), null);
+                        returned.addAndGet(result.getReturned().size());
+                        alreadyReturned.addAndGet(result.getAlreadyReturned().size());
+                        return null;
+                    }));
+                }
+                start.countDown();
+                for (Future<?> future : futures) {
+                    future.get(30, TimeUnit.SECONDS);
+                }
+
+                assertEquals(1, returned.get());
+                assertEquals(THREADS - 1, alreadyReturned.get());
+                assertNull(bookRepository.findById(book.getId()).get().getCurrentLoanId());
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
@@ -1,9 +1,17 @@
 package com.dev.unitests.service;
 
+import com.dev.unitests.api.dto.CustomerLoanSummaryDTO;
+import com.dev.unitests.api.dto.LoanBatchResultDTO;
+import com.dev.unitests.api.dto.LoanDTO;
 import com.dev.unitests.api.dto.LoanFilterDTO;
+import com.dev.unitests.api.dto.LoanReturnResultDTO;
+import com.dev.unitests.exception.BusinessException;
 import com.dev.unitests.model.entity.Book;
 import com.dev.unitests.model.entity.Loan;
+import com.dev.unitests.repository.BookRepository;
 import com.dev.unitests.repository.LoanRepository;
+import com.dev.unitests.repository.projection.CustomerLoanCount;
+import com.dev.unitests.repository.projection.LoanStatus;
 import com.dev.unitests.service.impl.LoanServiceImpl;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
@@ -11,19 +19,30 @@ import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.Mockito;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.context.junit.jupiter.SpringExtension;
 
+import javax.persistence.EntityManager;
 import java.time.LocalDate;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Stream;
 
 import static org.assertj.core.api.Assertions.catchThrowable;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.Mockito.*;
 
@@ -34,11 +53,17 @@ public class LoanServiceTest {
     @MockBean
     LoanRepository repository;
 
+    @MockBean
+    BookRepository bookRepository;
+
+    @MockBean
+    EntityManager entityManager;
+
     LoanService loanService;
 
     @BeforeEach
     public void setup() {
-        this.loanService = new LoanServiceImpl(repository);
+        this.loanService = new LoanServiceImpl(repository, bookRepository, entityManager);
     }
 
     @Test
@@ -59,8 +84,8 @@ public class LoanServiceTest {
                 .loanDate(LocalDate.now())
                 .build();
 
-        when(repository.existsByBookAndNotReturned(book)).thenReturn(false);
         Mockito.when(repository.save(savindLoan)).thenReturn(savedLoad);
+        when(bookRepository.markLoaned(1L, 1L)).thenReturn(1);
 
         Loan loan = loanService.save(savindLoan);
 
@@ -80,12 +105,84 @@ public class LoanServiceTest {
                 .loanDate(LocalDate.now())
                 .build();
 
-        when(repository.existsByBookAndNotReturned(book)).thenReturn(true); //se existe emprestimo para esse livro
+        when(repository.save(savingLoan)).thenReturn(Loan.builder().id(1L).book(book).build());
+        when(bookRepository.markLoaned(1L, 1L)).thenReturn(0); //o livro ja tem emprestimo aberto
+
+        Throwable exception = catchThrowable(() -> loanService.save(savingLoan));
+
+        assertEquals("Book already loaned", exception.getMessage());
+        verify(repository, never()).flush();
+    }
+
+    @Test
+    @DisplayName("Deve lançar erro de negócio quando outro empréstimo do livro vencer a corrida")
+    public void loanedBookRaceTest() {
+        Book book = Book.builder().id(1L).isbn("123").build();
+        Loan savingLoan = Loan.builder().book(book).customer("gabi").loanDate(LocalDate.now()).build();
+
+        when(repository.save(savingLoan)).thenReturn(Loan.builder().id(1L).book(book).build());
+        when(bookRepository.markLoaned(1L, 1L)).thenReturn(1);
+        doThrow(new DataIntegrityViolationException("ux_loan_open_book")).when(repository).flush();
 
         Throwable exception = catchThrowable(() -> loanService.save(savingLoan));
 
+        assertTrue(exception instanceof BusinessException);
         assertEquals("Book already loaned", exception.getMessage());
-        verify(repository, never()).save(savingLoan);
+    }
+
+    @Test
+    @DisplayName("Deve salvar emprestimos em lote informando o resultado de cada item")
+    public void shouldSaveLoanBatchTest() {
+        Book available = Book.builder().id(1L).isbn("123").build();
+        Book loaned = Book.builder().id(2L).isbn("456").currentLoanId(20L).build();
+
+        when(bookRepository.findByIsbnIn(Mockito.anyCollection())).thenReturn(Arrays.asList(available, loaned));
+        when(bookRepository.lockAvailableByIdIn(Collections.singletonList(1L))).thenReturn(Collections.singletonList(1L));
+        when(repository.saveAll(Mockito.anyList())).thenAnswer(invocation -> {
+            List<Loan> loans = invocation.getArgument(0);
+            loans.forEach(loan -> loan.setId(10L));
+            return loans;
+        });
+
+        List<LoanBatchResultDTO> results = loanService.saveBatch(Arrays.asList(
+                LoanDTO.builder().isbn("123").customer("gabi").build(),
+                LoanDTO.builder().isbn("456").customer("gabi").build(),
+                LoanDTO.builder().isbn("789").customer("gabi").build(),
+                LoanDTO.builder().isbn("123").customer("fulano").build()));
+
+        assertEquals(4, results.size());
+        assertEquals(10L, results.get(0).getId());
+        assertEquals("Book already loaned", results.get(1).getError());
+        assertEquals("Book not found for passed isbn", results.get(2).getError());
+        assertEquals("Book already loaned", results.get(3).getError());
+        verify(bookRepository, times(1)).findByIsbnIn(Mockito.anyCollection());
+        verify(repository, times(1)).saveAll(Mockito.argThat(loans -> ((List<Loan>) loans).size() == 1));
+        verify(bookRepository, times(1)).syncCurrentLoan(Collections.singletonList(1L));
+    }
+
+    @Test
+    @DisplayName("Deve informar no item do lote o livro emprestado por outra requisicao depois da leitura")
+    public void loanBatchBookLoanedConcurrentlyTest() {
+        Book first = Book.builder().id(1L).isbn("123").build();
+        Book second = Book.builder().id(2L).isbn("456").build();
+
+        when(bookRepository.findByIsbnIn(Mockito.anyCollection())).thenReturn(Arrays.asList(first, second));
+        when(bookRepository.lockAvailableByIdIn(Arrays.asList(1L, 2L))).thenReturn(Collections.singletonList(2L));
+        when(repository.saveAll(Mockito.anyList())).thenAnswer(invocation -> {
+            List<Loan> loans = invocation.getArgument(0);
+            loans.forEach(loan -> loan.setId(20L));
+            return loans;
+        });
+
+        List<LoanBatchResultDTO> results = loanService.saveBatch(Arrays.asList(
+                LoanDTO.builder().isbn("123").customer("gabi").build(),
+                LoanDTO.builder().isbn("456").customer("gabi").build()));
+
+        assertNull(results.get(0).getId());
+        assertEquals("Book already loaned", results.get(0).getError());
+        assertEquals(20L, results.get(1).getId());
+        verify(repository, times(1)).saveAll(Mockito.argThat(loans -> ((List<Loan>) loans).size() == 1));
+        verify(bookRepository, times(1)).syncCurrentLoan(Collections.singletonList(2L));
     }
 
     @Test
@@ -120,6 +217,7 @@ public class LoanServiceTest {
 
         assertTrue(updatedLoan.getReturned());
         verify(repository).save(loan);
+        verify(bookRepository).markReturned(1L, 1L);
     }
 
     @Test
@@ -150,6 +248,127 @@ public class LoanServiceTest {
         assertEquals(10, result.getPageable().getPageSize());
     }
 
+    @Test
+    @DisplayName("Deve usar a consulta por cliente quando o isbn nao for informado")
+    public void findLoanByCustomerOnlyTest() {
+        PageRequest pageRequest = PageRequest.of(0, 10);
+        Loan loan = createLoan();
+        when(repository.findByCustomer("Fulano", pageRequest))
+                .thenReturn(new PageImpl<>(Arrays.asList(loan), pageRequest, 1));
+        when(repository.findByBookIsbn("321", pageRequest))
+                .thenReturn(new PageImpl<>(Collections.emptyList(), pageRequest, 0));
+
+        assertEquals(Arrays.asList(loan), loanService.find(LoanFilterDTO.builder().customer("Fulano").build(), pageRequest).getContent());
+        assertEquals(0, loanService.find(LoanFilterDTO.builder().isbn("321").build(), pageRequest).getTotalElements());
+        verify(repository, never()).findByBookIsbnOrCustomer(any(), any(), any());
+    }
+
+    @Test
+    @DisplayName("Deve buscar o historico do cliente a partir do cursor informado")
+    public void findCustomerHistoryTest() {
+        Loan loan = createLoan();
+        LocalDate beforeDate = LocalDate.now();
+        when(repository.findCustomerHistory("Fulano", PageRequest.of(0, 10)))
+                .thenReturn(new SliceImpl<>(Arrays.asList(loan), PageRequest.of(0, 10), true));
+        when(repository.findCustomerHistoryBefore("Fulano", beforeDate, 7L, PageRequest.of(0, 10)))
+                .thenReturn(new SliceImpl<>(Collections.emptyList(), PageRequest.of(0, 10), false));
+
+        assertTrue(loanService.findCustomerHistory("Fulano", null, null, 10).hasNext());
+        assertFalse(loanService.findCustomerHistory("Fulano", beforeDate, 7L, 10).hasNext());
+    }
+
+    @Test
+    @DisplayName("Nao deve aceitar beforeId sem beforeDate no historico do cliente")
+    public void findCustomerHistoryWithoutBeforeDateTest() {
+        Throwable exception = catchThrowable(() -> loanService.findCustomerHistory("Fulano", null, 7L, 10));
+
+        assertTrue(exception instanceof IllegalArgumentException);
+        verify(repository, never()).findCustomerHistory(anyString(), any());
+    }
+
+    @Test
+    @DisplayName("Deve montar o resumo do cliente a partir das contagens do banco")
+    public void getCustomerSummaryTest() {
+        when(repository.countByCustomer("Fulano")).thenReturn(new CustomerLoanCount(5, 2));
+
+        CustomerLoanSummaryDTO summary = loanService.getCustomerSummary("Fulano");
+
+        assertEquals(CustomerLoanSummaryDTO.builder().customer("Fulano").totalLoans(5).openLoans(2).build(), summary);
+    }
+
+    @Test
+    @DisplayName("Deve filtrar empréstimos a partir de um id")
+    public void findLoanAfterTest() {
+        LoanFilterDTO loanFilterDTO = LoanFilterDTO.builder().customer("Fulano").build();
+
+        Loan loan = createLoan();
+        loan.setId(6L);
+        when(repository.findByCustomerAfter("Fulano", 5L, PageRequest.of(0, 10)))
+                .thenReturn(new SliceImpl<>(Arrays.asList(loan), PageRequest.of(0, 10), true));
+
+        Slice<Loan> result = loanService.findAfter(loanFilterDTO, 5L, 10);
+
+        assertEquals(Arrays.asList(loan), result.getContent());
+        assertTrue(result.hasNext());
+    }
+
+    @Test
+    @DisplayName("Deve devolver em lote classificando os ids inexistentes, ja devolvidos e isbns sem emprestimo")
+    public void returnBatchTest() {
+        when(repository.findStatusByIdIn(Arrays.asList(1L, 2L, 3L))).thenReturn(Arrays.asList(
+                new LoanStatus(1L, "a", false), new LoanStatus(2L, "b", true)));
+        when(repository.findOpenStatusByIsbnIn(Arrays.asList("c", "d"))).thenReturn(Collections.singletonList(
+                new LoanStatus(4L, "c", false)));
+        when(repository.lockOpenByIdIn(Arrays.asList(1L, 4L))).thenReturn(Arrays.asList(1L, 4L));
+
+        LoanReturnResultDTO result = loanService.returnBatch(Arrays.asList(1L, 2L, 3L, 1L), Arrays.asList("c", "d"));
+
+        assertEquals(Arrays.asList(1L, 4L), result.getReturned());
+        assertEquals(Collections.singletonList(2L), result.getAlreadyReturned());
+        assertEquals(Collections.singletonList(3L), result.getNotFound());
+        assertEquals(Collections.singletonList("d"), result.getIsbnsWithoutOpenLoan());
+        verify(repository).markReturned(new HashSet<>(Arrays.asList(1L, 4L)));
+        verify(bookRepository).markReturnedByLoanIds(new HashSet<>(Arrays.asList(1L, 4L)));
+        verify(repository, never()).findById(anyLong());
+    }
+
+    @Test
+    @DisplayName("Nao deve informar como devolvido o emprestimo devolvido por outro lote depois da classificacao")
+    public void returnBatchConcurrentlyReturnedTest() {
+        when(repository.findStatusByIdIn(Arrays.asList(1L, 2L))).thenReturn(Arrays.asList(
+                new LoanStatus(1L, "a", false), new LoanStatus(2L, "b", false)));
+        when(repository.findOpenStatusByIsbnIn(Collections.singletonList("c"))).thenReturn(Collections.singletonList(
+                new LoanStatus(4L, "c", false)));
+        //outro lote devolveu 2 e 4 entre a classificacao e a trava
+        when(repository.lockOpenByIdIn(Arrays.asList(1L, 2L, 4L))).thenReturn(Collections.singletonList(1L));
+
+        LoanReturnResultDTO result = loanService.returnBatch(Arrays.asList(1L, 2L), Collections.singletonList("c"));
+
+        assertEquals(Collections.singletonList(1L), result.getReturned());
+        assertEquals(Collections.singletonList(2L), result.getAlreadyReturned());
+        assertEquals(Collections.singletonList("c"), result.getIsbnsWithoutOpenLoan());
+        verify(repository).markReturned(Collections.singleton(1L));
+    }
+
+    @Test
+    @DisplayName("Deve exportar todos os emprestimos desanexando cada um depois de escrito")
+    public void exportAllTest() {
+        Loan first = createLoan();
+        first.setId(1L);
+        Loan second = createLoan();
+        second.setId(2L);
+        AtomicBoolean closed = new AtomicBoolean();
+        when(repository.streamAllWithBook()).thenReturn(Stream.of(first, second).onClose(() -> closed.set(true)));
+
+        List<Loan> exported = new ArrayList<>();
+        loanService.exportAll(exported::add);
+
+        assertEquals(Arrays.asList(first, second), exported);
+        verify(entityManager).detach(first);
+        verify(entityManager).detach(second);
+        assertTrue(closed.get());
+    }
+
     public static Loan createLoan() {
         Book book = Book.builder().id(1L).isbn("123").build();
         String customer = "Fulano";
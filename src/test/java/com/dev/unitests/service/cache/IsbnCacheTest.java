@@ -0,0 +1,224 @@
+package com.dev.unitests.service.cache;
+
+import com.dev.unitests.model.entity.Book;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class IsbnCacheTest {
+
+    MutableClock clock;
+
+    IsbnCache cache;
+
+    AtomicInteger loads;
+
+    Map<Long, Book> stored;
+
+    @BeforeEach
+    void setup() {
+        clock = new MutableClock();
+        cache = new IsbnCache(2, Duration.ofSeconds(10), clock);
+        loads = new AtomicInteger();
+        stored = new HashMap<>();
+    }
+
+    @Test
+    @DisplayName("Deve retornar do cache a partir da segunda consulta")
+    public void hitTest() {
+        cache.get("123", this::load, this::read);
+        Optional<Book> book = cache.get("123", this::load, this::read);
+
+        assertTrue(book.isPresent());
+        assertEquals(1, loads.get());
+        assertEquals(1, cache.getHitCount());
+        assertEquals(1, cache.getMissCount());
+    }
+
+    @Test
+    @DisplayName("Deve guardar no cache as consultas sem resultado")
+    public void negativeLookupTest() {
+        cache.exists("999", isbn -> {
+            loads.incrementAndGet();
+            return false;
+        });
+
+        assertFalse(cache.get("999", this::load, this::read).isPresent());
+        assertEquals(1, loads.get());
+    }
+
+    @Test
+    @DisplayName("Nao deve guardar no cache consultas de existencia positivas")
+    public void positiveExistsNotCachedTest() {
+        cache.exists("123", isbn -> true);
+
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    @DisplayName("Deve expirar as entradas apos o ttl")
+    public void ttlTest() {
+        cache.get("123", this::load, this::read);
+        clock.advance(Duration.ofSeconds(11));
+        cache.get("123", this::load, this::read);
+
+        assertEquals(2, loads.get());
+        assertEquals(1, cache.getEvictionCount());
+    }
+
+    @Test
+    @DisplayName("Deve remover a entrada menos usada ao atingir o tamanho maximo")
+    public void lruTest() {
+        cache.get("1", this::load, this::read);
+        cache.get("2", this::load, this::read);
+        cache.get("1", this::load, this::read);
+        cache.get("3", this::load, this::read);
+
+        assertEquals(2, cache.size());
+        assertEquals(1, cache.getEvictionCount());
+
+        cache.get("1", this::load, this::read);
+        assertEquals(3, loads.get());
+    }
+
+    @Test
+    @DisplayName("Deve consultar novamente apos invalidar o isbn")
+    public void evictTest() {
+        cache.get("123", this::load, this::read);
+        cache.evict("123");
+        cache.get("123", this::load, this::read);
+
+        assertEquals(2, loads.get());
+    }
+
+    @Test
+    @DisplayName("Deve invalidar pelo id apenas a entrada do livro")
+    public void evictBookTest() {
+        cache.get("10", this::load, this::read);
+        cache.get("20", this::load, this::read);
+
+        cache.evictBook(10L);
+
+        assertEquals(1, cache.size());
+        cache.get("20", this::load, this::read);
+        cache.get("10", this::load, this::read);
+        assertEquals(3, loads.get());
+    }
+
+    @Test
+    @DisplayName("Nao deve invalidar outra entrada pelo id de um livro ja removido do cache")
+    public void evictBookAfterLruTest() {
+        cache.get("10", this::load, this::read);
+        cache.get("20", this::load, this::read);
+        cache.get("30", this::load, this::read);
+
+        cache.evictBook(10L);
+
+        assertEquals(2, cache.size());
+        cache.evictBook(30L);
+        assertEquals(1, cache.size());
+    }
+
+    @Test
+    @DisplayName("Deve ler pelo id o livro atual a cada acerto")
+    public void hitReadsCurrentBookTest() {
+        cache.get("123", this::load, this::read);
+        stored.put(123L, Book.builder().id(123L).isbn("123").currentLoanId(5L).build());
+
+        Optional<Book> book = cache.get("123", this::load, this::read);
+
+        assertEquals(5L, book.get().getCurrentLoanId());
+        assertEquals(1, loads.get());
+        assertEquals(1, cache.getHitCount());
+    }
+
+    @Test
+    @DisplayName("Deve consultar de novo pelo isbn quando o livro em cache nao existir mais")
+    public void hitOfRemovedBookTest() {
+        cache.get("123", this::load, this::read);
+        stored.clear();
+
+        cache.get("123", this::load, this::read);
+
+        assertEquals(2, loads.get());
+        assertEquals(0, cache.getHitCount());
+        assertEquals(2, cache.getMissCount());
+    }
+
+    @Test
+    @DisplayName("Deve publicar acertos, faltas, remocoes e tamanho nas metricas")
+    public void metricsTest() {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        cache.bindTo(registry);
+
+        cache.get("1", this::load, this::read);
+        cache.get("1", this::load, this::read);
+        cache.get("2", this::load, this::read);
+        cache.get("3", this::load, this::read);
+
+        assertEquals(1, registry.get("cache.gets").tags("cache", IsbnCache.NAME, "result", "hit").functionCounter().count());
+        assertEquals(3, registry.get("cache.gets").tags("cache", IsbnCache.NAME, "result", "miss").functionCounter().count());
+        assertEquals(1, registry.get("cache.evictions").tags("cache", IsbnCache.NAME).functionCounter().count());
+        assertEquals(2, registry.get("cache.size").tags("cache", IsbnCache.NAME).gauge().value());
+    }
+
+    @Test
+    @DisplayName("Nao deve guardar valor carregado antes de uma invalidacao")
+    public void staleLoadTest() {
+        cache.get("123", isbn -> {
+            cache.evict(isbn);
+            return load(isbn);
+        }, this::read);
+
+        assertEquals(0, cache.size());
+    }
+
+    //id igual ao isbn, para distinguir os livros; o livro fica em stored para a leitura pelo id
+    private Optional<Book> load(String isbn) {
+        loads.incrementAndGet();
+        Book book = Book.builder().id(Long.valueOf(isbn)).isbn(isbn).build();
+        stored.put(book.getId(), book);
+        return Optional.of(book);
+    }
+
+    private Optional<Book> read(Long id) {
+        return Optional.ofNullable(stored.get(id));
+    }
+
+    static class MutableClock extends Clock {
+
+        private Instant instant = Instant.parse("2020-01-01T00:00:00Z");
+
+        void advance(Duration duration) {
+            instant = instant.plus(duration);
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return instant;
+        }
+    }
+}
@@ -0,0 +1,118 @@
+package com.dev.unitests.service.overdue;
+
+import com.dev.unitests.model.entity.Book;
+import com.dev.unitests.model.entity.Loan;
+import com.dev.unitests.repository.LoanRepository;
+import com.dev.unitests.repository.ScanWatermarkRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.Clock;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static com.dev.unitests.repository.BookRepositoryTest.createNewBook;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+@ExtendWith(SpringExtension.class)
+@ActiveProfiles("test")
+@DataJpaTest
+public class OverdueLoanDetectorTest {
+
+    static final LocalDate TODAY = LocalDate.of(2020, 3, 1);
+
+    @Autowired
+    TestEntityManager entityManager;
+
+    @Autowired
+    LoanRepository loanRepository;
+
+    @Autowired
+    ScanWatermarkRepository watermarkRepository;
+
+    @Autowired
+    PlatformTransactionManager transactionManager;
+
+    List<OverdueLoanEvent> events;
+
+    @BeforeEach
+    void setup() {
+        events = new ArrayList<>();
+    }
+
+    @Test
+    @DisplayName("Deve publicar os emprestimos vencidos e nao devolvidos")
+    public void detectOverdueLoansTest() {
+        Loan overdue = persistLoan("1", TODAY.minusDays(40), false);
+        persistLoan("2", TODAY.minusDays(40), true);
+        persistLoan("3", TODAY.minusDays(5), false);
+
+        int found = detector(TODAY, 10).detect();
+
+        assertEquals(1, found);
+        assertEquals(1, events.size());
+        assertEquals(overdue.getId(), events.get(0).getLoanId());
+        assertEquals("1", events.get(0).getIsbn());
+    }
+
+    @Test
+    @DisplayName("Deve continuar a partir da marca sem publicar de novo os ja encontrados")
+    public void incrementalScanTest() {
+        Loan first = persistLoan("1", TODAY.minusDays(40), false);
+        Loan second = persistLoan("2", TODAY.minusDays(20), false);
+
+        assertEquals(1, detector(TODAY, 10).detect());
+        assertEquals(0, detector(TODAY, 10).detect());
+
+        //onze dias depois o segundo emprestimo passa dos 30 dias e tambem vence
+        assertEquals(1, detector(TODAY.plusDays(11), 10).detect());
+
+        assertEquals(ids(first, second), events.stream().map(OverdueLoanEvent::getLoanId).collect(Collectors.toList()));
+        assertEquals(second.getId(), watermarkRepository.findById(OverdueLoanDetector.WATERMARK).get().getLastId());
+    }
+
+    @Test
+    @DisplayName("Deve percorrer em lotes os emprestimos vencidos na mesma data")
+    public void batchScanTest() {
+        List<Loan> loans = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            loans.add(persistLoan("isbn-" + i, TODAY.minusDays(40), false));
+        }
+
+        int found = detector(TODAY, 2).detect();
+
+        assertEquals(5, found);
+        assertEquals(loans.stream().map(Loan::getId).collect(Collectors.toList()),
+                events.stream().map(OverdueLoanEvent::getLoanId).collect(Collectors.toList()));
+    }
+
+    private OverdueLoanDetector detector(LocalDate today, int batchSize) {
+        Clock clock = Clock.fixed(today.atStartOfDay().toInstant(ZoneOffset.UTC), ZoneOffset.UTC);
+        return new OverdueLoanDetector(loanRepository, watermarkRepository,
+                event -> events.add((OverdueLoanEvent) event), transactionManager, 30, batchSize, clock);
+    }
+
+    private Loan persistLoan(String isbn, LocalDate loanDate, boolean returned) {
+        Book book = entityManager.persist(createNewBook(isbn));
+        return entityManager.persist(Loan.builder().book(book).customer("Fulano").loanDate(loanDate).returned(returned).build());
+    }
+
+    private static List<Long> ids(Loan... loans) {
+        List<Long> ids = new ArrayList<>();
+        for (Loan loan : loans) {
+            ids.add(loan.getId());
+        }
+        return ids;
+    }
+}
@@ -0,0 +1,97 @@
+package com.dev.unitests.service.search;
+
+import com.dev.unitests.model.entity.Book;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class BookSearchIndexTest {
+
+    BookSearchIndex index;
+
+    @BeforeEach
+    void setup() {
+        index = new BookSearchIndex();
+        index.index(book(1L, "As Aventuras de Tom Sawyer", "Mark Twain"));
+        index.index(book(2L, "O Príncipe", "Nicolau Maquiavel"));
+        index.index(book(3L, "Aventuras na Índia", "Tom Jobim"));
+        index.index(book(4L, "Contos", "Fulano Aventuras"));
+    }
+
+    @Test
+    @DisplayName("Deve separar termos em minusculas e sem acentos")
+    public void tokenizeTest() {
+        assertEquals(new LinkedHashSet<>(Arrays.asList("o", "principe", "2a", "ed")),
+                BookSearchIndex.tokenize("O Príncipe - 2a. ed."));
+    }
+
+    @Test
+    @DisplayName("Deve exigir todos os termos na busca AND")
+    public void andSearchTest() {
+        assertEquals(Arrays.asList(1L, 3L), index.search("tom aventuras", SearchOperator.AND, 10));
+    }
+
+    @Test
+    @DisplayName("Deve aceitar qualquer termo na busca OR ordenando pela relevancia")
+    public void orSearchTest() {
+        //"principe" e raro e esta no titulo, por isso pesa mais que "aventuras" no autor
+        assertEquals(Arrays.asList(1L, 3L, 2L, 4L), index.search("aventuras tom principe", SearchOperator.OR, 10));
+    }
+
+    @Test
+    @DisplayName("Deve pontuar mais os termos encontrados no titulo")
+    public void titleWeightTest() {
+        assertEquals(Arrays.asList(1L, 3L, 4L), index.search("AVENTURAS", SearchOperator.AND, 10));
+    }
+
+    @Test
+    @DisplayName("Deve limitar a quantidade de resultados")
+    public void limitTest() {
+        assertEquals(Collections.singletonList(1L), index.search("aventuras", SearchOperator.AND, 1));
+    }
+
+    @Test
+    @DisplayName("Deve aceitar um limite muito grande sem alocar por ele")
+    public void hugeLimitTest() {
+        assertEquals(Arrays.asList(1L, 3L, 4L), index.search("aventuras", SearchOperator.AND, Integer.MAX_VALUE));
+    }
+
+    @Test
+    @DisplayName("Deve devolver no maximo MAX_LIMIT resultados")
+    public void maxLimitTest() {
+        for (long id = 10; id < 10 + BookSearchIndex.MAX_LIMIT * 2; id++) {
+            index.index(book(id, "Colecao " + id, "Autor"));
+        }
+
+        assertEquals(BookSearchIndex.MAX_LIMIT, index.search("colecao", SearchOperator.AND, 1000).size());
+    }
+
+    @Test
+    @DisplayName("Deve atualizar e remover livros do indice")
+    public void updateAndRemoveTest() {
+        index.index(book(2L, "O Principe das Aventuras", "Nicolau Maquiavel"));
+        assertTrue(index.search("aventuras principe", SearchOperator.AND, 10).contains(2L));
+
+        index.remove(2L);
+        assertEquals(Collections.emptyList(), index.search("principe", SearchOperator.OR, 10));
+        assertEquals(3, index.size());
+    }
+
+    @Test
+    @DisplayName("Deve retornar vazio para consulta sem termos")
+    public void emptyQueryTest() {
+        assertEquals(Collections.emptyList(), index.search(" - ", SearchOperator.OR, 10));
+        assertEquals(Collections.emptyList(), index.search(null, SearchOperator.OR, 10));
+    }
+
+    private Book book(Long id, String title, String author) {
+        return Book.builder().id(id).title(title).author(author).isbn(String.valueOf(id)).build();
+    }
+}